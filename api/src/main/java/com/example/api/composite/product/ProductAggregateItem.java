@@ -0,0 +1,87 @@
+package com.example.api.composite.product;
+
+// One element of a streamed composite product. The PRODUCT item comes first,
+// followed by one RECOMMENDATION or REVIEW item per summary in arrival order.
+public class ProductAggregateItem {
+    public enum Type {
+        PRODUCT,
+        RECOMMENDATION,
+        REVIEW
+    }
+
+    private final Type type;
+    private final int productId;
+    private final String name;
+    private final int weight;
+    private final RecommendationSummary recommendation;
+    private final ReviewSummary review;
+    private final String serviceAddress;
+
+    public ProductAggregateItem() {
+        type=null;
+        productId=0;
+        name=null;
+        weight=0;
+        recommendation=null;
+        review=null;
+        serviceAddress=null;
+    }
+
+    public ProductAggregateItem(Type type, int productId, String name, int weight,
+                                RecommendationSummary recommendation, ReviewSummary review,
+                                String serviceAddress) {
+        this.type = type;
+        this.productId = productId;
+        this.name = name;
+        this.weight = weight;
+        this.recommendation = recommendation;
+        this.review = review;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public static ProductAggregateItem product(int productId, String name, int weight,
+                                               String serviceAddress) {
+        return new ProductAggregateItem(Type.PRODUCT, productId, name, weight,
+                null, null, serviceAddress);
+    }
+
+    public static ProductAggregateItem recommendation(int productId, RecommendationSummary recommendation,
+                                                      String serviceAddress) {
+        return new ProductAggregateItem(Type.RECOMMENDATION, productId, null, 0,
+                recommendation, null, serviceAddress);
+    }
+
+    public static ProductAggregateItem review(int productId, ReviewSummary review,
+                                              String serviceAddress) {
+        return new ProductAggregateItem(Type.REVIEW, productId, null, 0,
+                null, review, serviceAddress);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public RecommendationSummary getRecommendation() {
+        return recommendation;
+    }
+
+    public ReviewSummary getReview() {
+        return review;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+}
@@ -6,8 +6,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Tag(name = "ProductComposite",
         description = "REST API for composite product information.")
 public interface ProductCompositeService {
@@ -31,6 +34,85 @@ public interface ProductCompositeService {
     )
     Mono<ProductAggregate> getProduct(@PathVariable int productId);
 
+    @Operation(
+            summary = "${api.product-composite.get-composite-product-stream.description}",
+            description = "${api.product-composite.get-composite-product-stream.notes}"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400",
+                    description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "404",
+                    description = "${api.responseCodes.notFound.description}"),
+            @ApiResponse(responseCode = "422",
+                    description = "${api.responseCodes.unprocessableEntity.description}"),
+    })
+    @GetMapping(
+            value = "/product-composite/{productId}/stream",
+            produces = {"application/x-ndjson", "text/event-stream"}
+    )
+    Flux<ProductAggregateItem> getProductStream(@PathVariable int productId);
+
+    @Operation(
+            summary = "${api.product-composite.get-composite-products.description}",
+            description = "${api.product-composite.get-composite-products.notes}"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400",
+                    description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "422",
+                    description = "${api.responseCodes.unprocessableEntity.description}"),
+    })
+    @GetMapping(
+            value = "/product-composite",
+            produces = "application/json"
+    )
+    Flux<ProductAggregate> getProducts(@RequestParam(value = "ids", required = true) List<Integer> productIds);
+
+    @Operation(
+            summary = "${api.product-composite.get-composite-recommendations.description}",
+            description = "${api.product-composite.get-composite-recommendations.notes}"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400",
+                    description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "422",
+                    description = "${api.responseCodes.unprocessableEntity.description}"),
+    })
+    @GetMapping(
+            value = "/product-composite/{productId}/recommendations",
+            produces = "application/json"
+    )
+    Flux<RecommendationSummary> getProductRecommendations(
+            @PathVariable int productId,
+            @RequestParam(value = "after", required = false, defaultValue = "0") int afterRecommendationId,
+            @RequestParam(value = "size", required = false) Integer size);
+
+    @Operation(
+            summary = "${api.product-composite.get-composite-reviews.description}",
+            description = "${api.product-composite.get-composite-reviews.notes}"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400",
+                    description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "422",
+                    description = "${api.responseCodes.unprocessableEntity.description}"),
+    })
+    @GetMapping(
+            value = "/product-composite/{productId}/reviews",
+            produces = "application/json"
+    )
+    Flux<ReviewSummary> getProductReviews(
+            @PathVariable int productId,
+            @RequestParam(value = "after", required = false, defaultValue = "0") int afterReviewId,
+            @RequestParam(value = "size", required = false) Integer size);
 
     @Operation(
             summary = "${api.product-composite.create-composite-product.description}",
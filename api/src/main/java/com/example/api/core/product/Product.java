@@ -5,6 +5,8 @@ public class Product {
   private String name;
   private int weight;
   private String serviceAddress;
+  // Version of the stored entity, used for ETags, not for optimistic locking
+  private int version;
 
   public Product() {
     productId = 0;
@@ -51,4 +53,12 @@ public class Product {
   public void setWeight(int weight) {
     this.weight = weight;
   }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public void setVersion(int version) {
+    this.version = version;
+  }
 }
@@ -1,13 +1,21 @@
 package com.example.api.core.product;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ProductService {
 
-  @GetMapping(value = "/product/{productId}", produces = "application/json")
+  // The GETs also answer in Smile, binary JSON, when it is preferred in the Accept
+  // header, JSON stays the default. The composite service asks for Smile.
+  @GetMapping(value = "/product/{productId}", produces = {"application/json", "application/x-jackson-smile"})
   Mono<Product> getProduct(@PathVariable int productId);
 
+  @GetMapping(value = "/product", produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   @PostMapping(
           value = "/product",
           consumes = "application/json",
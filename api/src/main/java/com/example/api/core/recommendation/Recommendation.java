@@ -7,6 +7,7 @@ public class Recommendation {
   private int rate;
   private String content;
   private String serviceAddress;
+  private int version;
 
   public Recommendation() {
     productId = 0;
@@ -79,4 +80,12 @@ public class Recommendation {
   public void setServiceAddress(String serviceAddress) {
     this.serviceAddress = serviceAddress;
   }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public void setVersion(int version) {
+    this.version = version;
+  }
 }
@@ -7,10 +7,23 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface RecommendationService {
-  @GetMapping(value = "/recommendation", produces = "application/json")
+  @GetMapping(value = "/recommendation", produces = {"application/json", "application/x-jackson-smile"})
   Flux<Recommendation> getRecommendations(
           @RequestParam(value = "productId", required = true) int productId);
 
+  @GetMapping(value = "/recommendation", params = "productIds",
+          produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Recommendation> getRecommendationsForProducts(
+          @RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+  // Keyset pagination, returns up to size recommendations ordered by recommendationId
+  // and starting after the given one, pass the last recommendationId to get the next page
+  @GetMapping(value = "/recommendation/page", produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Recommendation> getRecommendationsPage(
+          @RequestParam(value = "productId", required = true) int productId,
+          @RequestParam(value = "after", required = false, defaultValue = "0") int afterRecommendationId,
+          @RequestParam(value = "size", required = false) Integer size);
+
   @PostMapping(
           value = "/recommendation",
           consumes = "application/json",
@@ -7,6 +7,7 @@ public class Review {
     private String subject;
     private String content;
     private String serviceAddress;
+    private int version;
 
     public Review() {}
 
@@ -72,4 +73,12 @@ public class Review {
     public void setServiceAddress(String serviceAddress) {
         this.serviceAddress = serviceAddress;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
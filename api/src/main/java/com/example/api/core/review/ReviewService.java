@@ -14,9 +14,21 @@ public interface ReviewService {
   )
   Mono<Review> createReview(@RequestBody Review body);
 
-  @GetMapping(value = "/review", produces = "application/json")
+  @GetMapping(value = "/review", produces = {"application/json", "application/x-jackson-smile"})
   Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
 
+  @GetMapping(value = "/review", params = "productIds", produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Review> getReviewsForProducts(
+          @RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+  // Keyset pagination, returns up to size reviews ordered by reviewId and starting
+  // after the given one, pass the last reviewId to get the next page
+  @GetMapping(value = "/review/page", produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Review> getReviewsPage(
+          @RequestParam(value = "productId", required = true) int productId,
+          @RequestParam(value = "after", required = false, defaultValue = "0") int afterReviewId,
+          @RequestParam(value = "size", required = false) Integer size);
+
   @DeleteMapping(value = "/review")
   Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true)
                      int productId);
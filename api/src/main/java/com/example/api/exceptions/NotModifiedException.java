@@ -0,0 +1,15 @@
+package com.example.api.exceptions;
+
+public class NotModifiedException extends RuntimeException {
+    private final String eTag;
+
+    // Ends a conditional GET whose ETag matches, no stack trace is needed
+    public NotModifiedException(String eTag) {
+        super("Not modified, ETag: " + eTag, null, false, false);
+        this.eTag = eTag;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.benchmarks;
+
+import com.example.api.core.product.Product;
+import com.example.api.core.recommendation.Recommendation;
+import com.example.api.core.review.Review;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// The three core service responses the composite service decodes per aggregate,
+// in JSON and in Smile. The bytes on the wire per aggregate are reported as the
+// wireBytes secondary result of each benchmark.
+@State(Scope.Benchmark)
+public class ContentTypeBenchmark {
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"0", "10", "100"})
+    private int size;
+
+    private ObjectWriter productWriter;
+    private ObjectReader productReader;
+    private ObjectWriter recommendationsWriter;
+    private ObjectReader recommendationsReader;
+    private ObjectWriter reviewsWriter;
+    private ObjectReader reviewsReader;
+
+    private Product product;
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+    private byte[] productBytes;
+    private byte[] recommendationsBytes;
+    private byte[] reviewsBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = "smile".equals(format)
+                ? Jackson2ObjectMapperBuilder.smile().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        productWriter = mapper.writerFor(Product.class);
+        productReader = mapper.readerFor(Product.class);
+        recommendationsWriter = mapper.writerFor(new TypeReference<List<Recommendation>>() {});
+        recommendationsReader = mapper.readerFor(new TypeReference<List<Recommendation>>() {});
+        reviewsWriter = mapper.writerFor(new TypeReference<List<Review>>() {});
+        reviewsReader = mapper.readerFor(new TypeReference<List<Review>>() {});
+
+        product = new Product(1, "name", 1, "product-address");
+        recommendations = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new Recommendation(1, i, "author " + i, i % 5, "content " + i,
+                        "recommendation-address"))
+                .collect(Collectors.toList());
+        reviews = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new Review(1, i, "author " + i, "subject " + i, "content " + i,
+                        "review-address"))
+                .collect(Collectors.toList());
+
+        productBytes = productWriter.writeValueAsBytes(product);
+        recommendationsBytes = recommendationsWriter.writeValueAsBytes(recommendations);
+        reviewsBytes = reviewsWriter.writeValueAsBytes(reviews);
+    }
+
+    // Assigned instead of incremented, so it holds the size of one aggregate
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+        public long wireBytes;
+    }
+
+    @Benchmark
+    public void encodeAggregate(Blackhole blackhole, WireBytes counters) throws IOException {
+        byte[] encodedProduct = productWriter.writeValueAsBytes(product);
+        byte[] encodedRecommendations = recommendationsWriter.writeValueAsBytes(recommendations);
+        byte[] encodedReviews = reviewsWriter.writeValueAsBytes(reviews);
+        counters.wireBytes = encodedProduct.length + encodedRecommendations.length + encodedReviews.length;
+        blackhole.consume(encodedProduct);
+        blackhole.consume(encodedRecommendations);
+        blackhole.consume(encodedReviews);
+    }
+
+    @Benchmark
+    public void decodeAggregate(Blackhole blackhole, WireBytes counters) throws IOException {
+        counters.wireBytes = productBytes.length + recommendationsBytes.length + reviewsBytes.length;
+        blackhole.consume(productReader.<Product>readValue(productBytes));
+        blackhole.consume(recommendationsReader.<List<Recommendation>>readValue(recommendationsBytes));
+        blackhole.consume(reviewsReader.<List<Review>>readValue(reviewsBytes));
+    }
+}
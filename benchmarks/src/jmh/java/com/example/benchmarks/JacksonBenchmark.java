@@ -0,0 +1,84 @@
+package com.example.benchmarks;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.example.api.composite.product.RecommendationSummary;
+import com.example.api.composite.product.ReviewSummary;
+import com.example.api.composite.product.ServiceAddresses;
+import com.example.api.core.product.Product;
+import com.example.api.event.Event;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Uses an ObjectMapper set up the way Spring configures the one used by WebFlux
+// and Spring Cloud Stream, i.e. with the Java time module registered
+@State(Scope.Benchmark)
+public class JacksonBenchmark {
+    @Param({"0", "10", "100"})
+    private int size;
+
+    private ObjectWriter eventWriter;
+    private ObjectReader eventReader;
+    private ObjectWriter aggregateWriter;
+    private ObjectReader aggregateReader;
+
+    private Event<Integer, Product> event;
+    private byte[] eventJson;
+    private ProductAggregate aggregate;
+    private byte[] aggregateJson;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        eventWriter = mapper.writerFor(new TypeReference<Event<Integer, Product>>() {});
+        eventReader = mapper.readerFor(new TypeReference<Event<Integer, Product>>() {});
+        aggregateWriter = mapper.writerFor(ProductAggregate.class);
+        aggregateReader = mapper.readerFor(ProductAggregate.class);
+
+        event = new Event<>(Event.Type.CREATE, 1, new Product(1, "name", 1, "product-address"));
+        eventJson = eventWriter.writeValueAsBytes(event);
+
+        List<RecommendationSummary> recommendations = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new RecommendationSummary(i, "author " + i, i % 5, "content " + i))
+                .collect(Collectors.toList());
+        List<ReviewSummary> reviews = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new ReviewSummary(i, "author " + i, "subject " + i, "content " + i))
+                .collect(Collectors.toList());
+        aggregate = new ProductAggregate(1, "name", 1, recommendations, reviews,
+                new ServiceAddresses("composite-address", "product-address",
+                        "review-address", "recommendation-address"));
+        aggregateJson = aggregateWriter.writeValueAsBytes(aggregate);
+    }
+
+    @Benchmark
+    public byte[] serializeProductEvent() throws IOException {
+        return eventWriter.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public Event<Integer, Product> deserializeProductEvent() throws IOException {
+        return eventReader.readValue(eventJson);
+    }
+
+    @Benchmark
+    public byte[] serializeProductAggregate() throws IOException {
+        return aggregateWriter.writeValueAsBytes(aggregate);
+    }
+
+    @Benchmark
+    public ProductAggregate deserializeProductAggregate() throws IOException {
+        return aggregateReader.readValue(aggregateJson);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.benchmarks;
+
+import com.example.api.core.product.Product;
+import com.example.api.core.recommendation.Recommendation;
+import com.example.api.core.review.Review;
+import com.example.microservices.core.product.persistence.ProductEntity;
+import com.example.microservices.core.product.services.ProductMapper;
+import com.example.microservices.core.recommendation.persistence.RecommendationEntity;
+import com.example.microservices.core.recommendation.services.RecommendationMapper;
+import com.example.microservices.core.review.persistence.ReviewEntity;
+import com.example.microservices.core.review.services.ReviewMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    private int size;
+
+    private final ProductMapper productMapper = Mappers.getMapper(ProductMapper.class);
+    private final RecommendationMapper recommendationMapper = Mappers.getMapper(RecommendationMapper.class);
+    private final ReviewMapper reviewMapper = Mappers.getMapper(ReviewMapper.class);
+
+    private ProductEntity productEntity;
+    private Product product;
+    private List<RecommendationEntity> recommendationEntities;
+    private List<ReviewEntity> reviewEntities;
+
+    @Setup
+    public void setup() {
+        productEntity = new ProductEntity(1, "name", 1);
+        product = new Product(1, "name", 1, "product-address");
+        recommendationEntities = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new RecommendationEntity(1, i, "author " + i, i % 5, "content " + i))
+                .collect(Collectors.toList());
+        reviewEntities = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new ReviewEntity(1, i, "author " + i, "subject " + i, "content " + i))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Product productEntityToApi() {
+        return productMapper.entityToApi(productEntity);
+    }
+
+    @Benchmark
+    public ProductEntity productApiToEntity() {
+        return productMapper.apiToEntity(product);
+    }
+
+    @Benchmark
+    public List<Recommendation> recommendationEntityListToApiList() {
+        return recommendationMapper.entityListToApiList(recommendationEntities);
+    }
+
+    @Benchmark
+    public List<Review> reviewEntityListToApiList() {
+        return reviewMapper.entityListToApiList(reviewEntities);
+    }
+}
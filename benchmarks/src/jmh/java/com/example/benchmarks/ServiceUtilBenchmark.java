@@ -0,0 +1,30 @@
+package com.example.benchmarks;
+
+import com.example.util.http.ServiceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class ServiceUtilBenchmark {
+    private ServiceUtil serviceUtil;
+
+    @Setup
+    public void setup() {
+        serviceUtil = new ServiceUtil("8080");
+        serviceUtil.getServiceAddress();
+    }
+
+    // The address is resolved once and then reused
+    @Benchmark
+    public String getServiceAddress() {
+        return serviceUtil.getServiceAddress();
+    }
+
+    // Cost of the host name and address lookup done on the first call
+    @Benchmark
+    public String getServiceAddressFirstCall() {
+        return new ServiceUtil("8080").getServiceAddress();
+    }
+}
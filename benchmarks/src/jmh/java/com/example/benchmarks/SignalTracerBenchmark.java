@@ -0,0 +1,71 @@
+package com.example.benchmarks;
+
+import com.example.util.tracing.SignalTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Per request cost of the log() operator the services used with FINE disabled
+// against the SignalTracer. logback.xml leaves DEBUG off for the log() logger and
+// on, without appenders, for SignalTracer so sampled pipelines do all their work.
+// Compare the gc.alloc.rate.norm reported by the gc profiler.
+@State(Scope.Benchmark)
+public class SignalTracerBenchmark {
+    private static final String LOGGER = "com.example.benchmarks.SignalTracerBenchmark";
+
+    @Param({"0.0", "0.01", "1.0"})
+    private double sampleRate;
+
+    private SignalTracer tracer;
+    private List<Integer> values;
+
+    @Setup
+    public void setup() {
+        tracer = new SignalTracer(sampleRate);
+        values = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void fluxPlain(Blackhole blackhole) {
+        Flux.fromIterable(values)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void fluxLog(Blackhole blackhole) {
+        Flux.fromIterable(values)
+                .log(LOGGER, Level.FINE)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void fluxTraced(Blackhole blackhole) {
+        Flux.fromIterable(values)
+                .transform(tracer.flux("fluxTraced"))
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void monoLog(Blackhole blackhole) {
+        Mono.just(1)
+                .log(LOGGER, Level.FINE)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void monoTraced(Blackhole blackhole) {
+        Mono.just(1)
+                .transform(tracer.mono("monoTraced"))
+                .subscribe(blackhole::consume);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.microservices.composite.product.services;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.example.api.core.product.Product;
+import com.example.api.core.recommendation.Recommendation;
+import com.example.api.core.review.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Lives in the services package to reach the package-private createProductAggregate
+@State(Scope.Benchmark)
+public class ProductAggregateBenchmark {
+    @Param({"0", "10", "100", "1000"})
+    private int size;
+
+    private Product product;
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+
+    @Setup
+    public void setup() {
+        product = new Product(1, "name", 1, "product-address");
+        recommendations = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new Recommendation(1, i, "author " + i, i % 5, "content " + i,
+                        "recommendation-address"))
+                .collect(Collectors.toList());
+        reviews = IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new Review(1, i, "author " + i, "subject " + i, "content " + i,
+                        "review-address"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public ProductAggregate createProductAggregate() {
+        return ProductCompositeServiceImpl.createProductAggregate(product, recommendations, reviews,
+                "composite-address");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Keeps every latency of a run, a run is bounded so sorting them for the
+// percentiles at the end is cheap enough
+class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    synchronized void record(long latencyNanos, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    synchronized String summary(long elapsedNanos) {
+        if (count == 0) {
+            return "no requests";
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double throughput = count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        return String.format("%d requests, %d errors, %.1f req/s, latency ms p50 %.2f, p90 %.2f, " +
+                        "p99 %.2f, p99.9 %.2f, max %.2f",
+                count, errors, throughput,
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 90)),
+                millis(percentile(sorted, 99)), millis(percentile(sorted, 99.9)),
+                millis(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.loadtest;
+
+import com.example.microservices.composite.product.ProductCompositeServiceApplication;
+import com.example.microservices.core.product.ProductServiceApplication;
+import com.example.microservices.core.recommendation.RecommendationServiceApplication;
+import com.example.microservices.core.review.ReviewServiceApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Starts the composite and the three core services in one JVM and drives an open
+// model workload against the composite. MongoDB is replaced by embedded MongoDB,
+// MySQL by H2 and the broker by the Spring Cloud Stream test binder.
+public class LoadTestApplication {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTestApplication.class);
+
+    private static final String MONGODB_VERSION = "4.4.2";
+
+    private static final List<String> COMMON_ARGS = List.of(
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--spring.main.allow-bean-definition-overriding=true",
+            "--spring.cloud.stream.defaultBinder=integration",
+            "--logging.level.root=WARN",
+            "--logging.level.com.example=WARN",
+            "--logging.level.com.example.loadtest=INFO",
+            "--logging.level.org.springframework.data.mongodb.core.MongoTemplate=WARN",
+            "--logging.level.org.hibernate.SQL=WARN",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+
+    public static void main(String[] args) throws InterruptedException {
+        Workload.Settings settings = Workload.Settings.fromSystemProperties();
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        try {
+            ConfigurableApplicationContext product = startService(contexts,
+                    ProductServiceApplication.class, "product",
+                    "--spring.data.mongodb.port=0",
+                    "--spring.mongodb.embedded.version=" + MONGODB_VERSION);
+            ConfigurableApplicationContext recommendation = startService(contexts,
+                    RecommendationServiceApplication.class, "recommendation",
+                    "--spring.data.mongodb.port=0",
+                    "--spring.mongodb.embedded.version=" + MONGODB_VERSION);
+            ConfigurableApplicationContext review = startService(contexts,
+                    ReviewServiceApplication.class, "review",
+                    "--spring.datasource.url=jdbc:h2:mem:review_db;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=");
+            ConfigurableApplicationContext composite = startService(contexts,
+                    ProductCompositeServiceApplication.class, "composite",
+                    simpleInstance("product", product),
+                    simpleInstance("recommendation", recommendation),
+                    simpleInstance("review", review));
+
+            try (MessageBridge bridge = new MessageBridge(composite.getBean(OutputDestination.class))) {
+                bridge.forward("products", product.getBean(InputDestination.class));
+                bridge.forward("recommendations", recommendation.getBean(InputDestination.class));
+                bridge.forward("reviews", review.getBean(InputDestination.class));
+                bridge.start();
+
+                new Workload("http://localhost:" + port(composite), settings,
+                        () -> bridge.awaitQuiet(Duration.ofSeconds(1), Duration.ofMinutes(5))).run();
+            }
+        } finally {
+            Collections.reverse(contexts);
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private static ConfigurableApplicationContext startService(
+            List<ConfigurableApplicationContext> contexts, Class<?> application, String name,
+            String... extraArgs) {
+        String config = System.getProperty("loadtest.config." + name);
+        if (config == null) {
+            throw new IllegalStateException("System property loadtest.config." + name +
+                    " must point to the application.yml of the " + name + " service");
+        }
+        List<String> args = new ArrayList<>(COMMON_ARGS);
+        args.add("--spring.config.location=file:" + config);
+        Collections.addAll(args, extraArgs);
+
+        LOG.info("Starts the {} service", name);
+        // Every service gets its own test binder, MessageBridge connects them
+        ConfigurableApplicationContext context =
+                new SpringApplicationBuilder(application, TestChannelBinderConfiguration.class)
+                        .run(args.toArray(new String[0]));
+        contexts.add(context);
+        LOG.info("Started the {} service on port {}", name, port(context));
+        return context;
+    }
+
+    // The composite finds the core services through the simple discovery client
+    // instead of Eureka
+    private static String simpleInstance(String serviceId, ConfigurableApplicationContext context) {
+        return "--spring.cloud.discovery.client.simple.instances." + serviceId +
+                "[0].uri=http://localhost:" + port(context);
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.messaging.Message;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Forwards the messages the composite publishes to the test binder of each core
+// service. One thread per destination, so events for a destination are consumed
+// one at a time and in order, like a single consumer on a broker queue.
+class MessageBridge implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageBridge.class);
+
+    private final OutputDestination source;
+    private final Map<String, InputDestination> targets = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastForwarded = System.nanoTime();
+    private volatile boolean running = true;
+    private ExecutorService executor;
+
+    MessageBridge(OutputDestination source) {
+        this.source = source;
+    }
+
+    void forward(String destination, InputDestination target) {
+        targets.put(destination, target);
+    }
+
+    void start() {
+        executor = Executors.newFixedThreadPool(targets.size());
+        targets.forEach((destination, target) -> executor.execute(() -> pump(destination, target)));
+    }
+
+    // Waits until no message has been forwarded for the given quiet period
+    void awaitQuiet(Duration quietPeriod, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 || System.nanoTime() - lastForwarded < quietPeriod.toNanos()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Messages still flowing after " + timeout);
+            }
+            sleep(100);
+        }
+    }
+
+    private void pump(String destination, InputDestination target) {
+        while (running) {
+            Message<byte[]> message = source.receive(100, destination);
+            if (message == null) {
+                continue;
+            }
+            inFlight.incrementAndGet();
+            try {
+                target.send(message, destination);
+            } catch (RuntimeException ex) {
+                LOG.warn("Failed to process a message on {}: {}", destination, ex.toString());
+            } finally {
+                lastForwarded = System.nanoTime();
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.loadtest;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.example.api.composite.product.RecommendationSummary;
+import com.example.api.composite.product.ReviewSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Open model workload, requests are started at a fixed rate whether or not earlier
+// ones have completed. Latencies are measured from the time a request should have
+// started, so a stalled client or service doesn't hide queueing delays.
+class Workload {
+    private static final Logger LOG = LoggerFactory.getLogger(Workload.class);
+
+    enum Operation {
+        GET,
+        CREATE,
+        DELETE
+    }
+
+    static class Settings {
+        final int rate;
+        final int warmupSeconds;
+        final int durationSeconds;
+        final int products;
+        final int readPercent;
+        final int createPercent;
+
+        Settings(int rate, int warmupSeconds, int durationSeconds, int products,
+                 int readPercent, int createPercent) {
+            this.rate = rate;
+            this.warmupSeconds = warmupSeconds;
+            this.durationSeconds = durationSeconds;
+            this.products = products;
+            this.readPercent = readPercent;
+            this.createPercent = createPercent;
+        }
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.rate", 100),
+                    Integer.getInteger("loadtest.warmup", 10),
+                    Integer.getInteger("loadtest.duration", 60),
+                    Integer.getInteger("loadtest.products", 100),
+                    Integer.getInteger("loadtest.readPercent", 80),
+                    Integer.getInteger("loadtest.createPercent", 10));
+        }
+    }
+
+    private final WebClient client;
+    private final ConnectionProvider connectionProvider;
+    private final Settings settings;
+    private final Runnable awaitEventsProcessed;
+    private final Random random = new Random(42);
+    private final AtomicInteger nextProductId;
+    private final Queue<Integer> createdProductIds = new ConcurrentLinkedQueue<>();
+
+    Workload(String baseUrl, Settings settings, Runnable awaitEventsProcessed) {
+        // Large enough that the client's own pool doesn't queue the requests
+        this.connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(1000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        this.settings = settings;
+        this.awaitEventsProcessed = awaitEventsProcessed;
+        this.nextProductId = new AtomicInteger(settings.products + 1);
+    }
+
+    void run() {
+        try {
+            LOG.info("Creates {} products", settings.products);
+            Flux.range(1, settings.products)
+                    .flatMap(this::create, 16)
+                    .blockLast();
+            awaitEventsProcessed.run();
+
+            LOG.info("Warms up for {} s at {} req/s", settings.warmupSeconds, settings.rate);
+            runPhase(settings.warmupSeconds);
+            awaitEventsProcessed.run();
+
+            LOG.info("Measures for {} s at {} req/s, {}% get, {}% create, {}% delete",
+                    settings.durationSeconds, settings.rate, settings.readPercent,
+                    settings.createPercent, 100 - settings.readPercent - settings.createPercent);
+            long start = System.nanoTime();
+            Map<Operation, LatencyRecorder> recorders = runPhase(settings.durationSeconds);
+            long elapsed = System.nanoTime() - start;
+
+            recorders.forEach((operation, recorder) ->
+                    LOG.info("{}: {}", operation, recorder.summary(elapsed)));
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+    }
+
+    private Map<Operation, LatencyRecorder> runPhase(int seconds) {
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        long start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take((long) seconds * settings.rate)
+                // interval emits on a single thread, so the operation mix is drawn in order
+                .map(tick -> new Request(nextOperation(), start + (tick + 1) * periodNanos))
+                .flatMap(request -> execute(request.operation)
+                        .onErrorReturn(false)
+                        .doOnNext(success -> recorders.get(request.operation)
+                                .record(System.nanoTime() - request.intendedStart, success)),
+                        Integer.MAX_VALUE)
+                .blockLast();
+        return recorders;
+    }
+
+    private Operation nextOperation() {
+        int draw = random.nextInt(100);
+        if (draw < settings.readPercent) {
+            return Operation.GET;
+        }
+        return draw < settings.readPercent + settings.createPercent ? Operation.CREATE : Operation.DELETE;
+    }
+
+    private Mono<Boolean> execute(Operation operation) {
+        switch (operation) {
+            case GET:
+                return get(1 + random.nextInt(settings.products));
+            case CREATE:
+                int productId = nextProductId.getAndIncrement();
+                return create(productId).doOnNext(success -> {
+                    if (success) {
+                        createdProductIds.add(productId);
+                    }
+                });
+            case DELETE:
+                Integer createdId = createdProductIds.poll();
+                return delete(createdId != null ? createdId : nextProductId.get());
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private Mono<Boolean> get(int productId) {
+        return client.get().uri("/product-composite/{productId}", productId)
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(response.statusCode().is2xxSuccessful()));
+    }
+
+    private Mono<Boolean> create(int productId) {
+        List<RecommendationSummary> recommendations = IntStream.rangeClosed(1, 3)
+                .mapToObj(i -> new RecommendationSummary(i, "author " + i, i, "content " + i))
+                .collect(Collectors.toList());
+        List<ReviewSummary> reviews = IntStream.rangeClosed(1, 3)
+                .mapToObj(i -> new ReviewSummary(i, "author " + i, "subject " + i, "content " + i))
+                .collect(Collectors.toList());
+        ProductAggregate body = new ProductAggregate(productId, "product " + productId, productId,
+                recommendations, reviews, null);
+        return client.post().uri("/product-composite")
+                .bodyValue(body)
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(response.statusCode().is2xxSuccessful()));
+    }
+
+    private Mono<Boolean> delete(int productId) {
+        return client.delete().uri("/product-composite/{productId}", productId)
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(response.statusCode().is2xxSuccessful()));
+    }
+
+    private static class Request {
+        final Operation operation;
+        final long intendedStart;
+
+        Request(Operation operation, long intendedStart) {
+            this.operation = operation;
+            this.intendedStart = intendedStart;
+        }
+    }
+}
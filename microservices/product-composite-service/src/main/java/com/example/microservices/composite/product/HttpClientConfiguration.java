@@ -0,0 +1,146 @@
+package com.example.microservices.composite.product;
+
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// The connector is picked up by Spring Boot's WebClient customizer, so it is used
+// by the load balanced WebClient.Builder that calls the core services
+@Configuration
+public class HttpClientConfiguration {
+    private static final Logger LOG = LoggerFactory.getLogger(HttpClientConfiguration.class);
+
+    private static final List<String> CORE_SERVICES = List.of("product", "recommendation", "review");
+
+    private static final String PREFER_SMILE = "application/x-jackson-smile, application/json;q=0.9, */*;q=0.8";
+
+    // maxConnections is per remote address, i.e. per core service instance.
+    // metrics(true) registers the reactor.netty.connection.provider.* gauges
+    // (total, active, idle and pending connections) in the global Micrometer
+    // registry that Spring Boot adds its registries to.
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider coreServicesConnectionProvider(
+            @Value("${app.webClient.pool.maxConnections:100}") int maxConnections,
+            @Value("${app.webClient.pool.pendingAcquireMaxCount:500}") int pendingAcquireMaxCount,
+            @Value("${app.webClient.pool.pendingAcquireTimeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${app.webClient.pool.maxIdleTime:30s}") Duration maxIdleTime,
+            @Value("${app.webClient.pool.maxLifeTime:5m}") Duration maxLifeTime,
+            @Value("${app.webClient.pool.evictInBackground:30s}") Duration evictInBackground,
+            @Value("${app.webClient.pool.leasingStrategy:lifo}") String leasingStrategy) {
+        LOG.info("Creates a connection pool for the core services, maxConnections: {}, " +
+                        "pendingAcquireMaxCount: {}, maxIdleTime: {}, leasingStrategy: {}",
+                maxConnections, pendingAcquireMaxCount, maxIdleTime, leasingStrategy);
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("core-services")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true);
+        // LIFO keeps reusing the most recently used connections so the others
+        // go idle and are evicted, FIFO spreads the requests over all of them
+        return "fifo".equalsIgnoreCase(leasingStrategy) ? builder.fifo().build() : builder.lifo().build();
+    }
+
+    // With h2c the client upgrades to HTTP/2 when the core services run with
+    // server.http2.enabled, and stays on HTTP/1.1 with them otherwise
+    @Bean
+    public ReactorClientHttpConnector coreServicesClientHttpConnector(
+            ConnectionProvider coreServicesConnectionProvider,
+            @Value("${app.webClient.protocols:HTTP11}") List<HttpProtocol> protocols,
+            @Value("${app.webClient.connectTimeout:2s}") Duration connectTimeout,
+            @Value("${app.webClient.responseTimeout:1500ms}") Duration responseTimeout) {
+        LOG.info("Creates a HTTP client for the core services, protocols: {}, connectTimeout: {}, " +
+                "responseTimeout: {}", protocols, connectTimeout, responseTimeout);
+        HttpClient httpClient = HttpClient.create(coreServicesConnectionProvider)
+                .protocol(protocols.toArray(new HttpProtocol[0]))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    // app.webClient.responseTimeouts.<serviceId> overrides the response timeout
+    // for the calls to one core service
+    @Bean
+    public WebClientCustomizer responseTimeoutsCustomizer(
+            Environment environment,
+            TimeLimiterRegistry timeLimiterRegistry,
+            @Value("${app.webClient.responseTimeout:1500ms}") Duration responseTimeout) {
+        Map<String, Duration> timeouts = Binder.get(environment)
+                .bind("app.webClient.responseTimeouts", Bindable.mapOf(String.class, Duration.class))
+                .orElse(Map.of());
+        LOG.info("Response timeouts per service: {}", timeouts);
+        validateResponseTimeouts(responseTimeout, timeouts, timeLimiterRegistry);
+        return builder -> builder.filter(responseTimeouts(timeouts));
+    }
+
+    // The resilience4j time limiter of a core service cancels its calls first, a
+    // response timeout that isn't below it could never fire
+    static void validateResponseTimeouts(Duration responseTimeout, Map<String, Duration> timeouts,
+                                         TimeLimiterRegistry timeLimiterRegistry) {
+        Set<String> services = new TreeSet<>(CORE_SERVICES);
+        services.addAll(timeouts.keySet());
+        for (String service : services) {
+            Duration timeout = timeouts.getOrDefault(service, responseTimeout);
+            Duration limit = timeLimiterRegistry.timeLimiter(service).getTimeLimiterConfig().getTimeoutDuration();
+            if (timeout.compareTo(limit) >= 0) {
+                throw new IllegalArgumentException("Invalid response timeout of " + service + ": " + timeout +
+                        ", must be below the time limiter timeout: " + limit);
+            }
+        }
+    }
+
+    // Smile is binary JSON, smaller on the wire and cheaper to parse than JSON.
+    // The core services answer GETs in it when it is preferred, other endpoints
+    // and services fall back to JSON.
+    @Bean
+    public WebClientCustomizer preferSmileCustomizer(@Value("${app.webClient.preferSmile:true}") boolean preferSmile) {
+        LOG.info("Prefers Smile in the calls to the core services: {}", preferSmile);
+        return builder -> {
+            if (preferSmile) {
+                builder.defaultHeader(HttpHeaders.ACCEPT, PREFER_SMILE);
+            }
+        };
+    }
+
+    // Runs before the load balancer filter, so the host is still the service id
+    static ExchangeFilterFunction responseTimeouts(Map<String, Duration> timeouts) {
+        return (request, next) -> {
+            Duration timeout = timeouts.get(request.url().getHost());
+            if (timeout == null) {
+                return next.exchange(request);
+            }
+            return next.exchange(ClientRequest.from(request)
+                    .httpRequest(httpRequest -> {
+                        Object nativeRequest = httpRequest.getNativeRequest();
+                        if (nativeRequest instanceof HttpClientRequest) {
+                            ((HttpClientRequest) nativeRequest).responseTimeout(timeout);
+                        }
+                    })
+                    .build());
+        };
+    }
+}
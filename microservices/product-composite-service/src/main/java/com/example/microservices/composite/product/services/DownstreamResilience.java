@@ -0,0 +1,61 @@
+package com.example.microservices.composite.product.services;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Wraps the calls to a core service in the circuit breaker, time limiter and
+// bulkhead named after the service, configured under resilience4j.* in
+// application.yml. The circuit breaker is outermost so time outs and full
+// bulkheads count as failures, an open circuit or a full bulkhead fails the
+// call at once with CallNotPermittedException or BulkheadFullException.
+@Component
+public class DownstreamResilience {
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    public DownstreamResilience(
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            TimeLimiterRegistry timeLimiterRegistry,
+            BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    public <T> Mono<T> protect(String service, Mono<T> call) {
+        return call.transformDeferred(BulkheadOperator.of(bulkhead(service)))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter(service)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(service)));
+    }
+
+    public <T> Flux<T> protect(String service, Flux<T> call) {
+        return call.transformDeferred(BulkheadOperator.of(bulkhead(service)))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter(service)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(service)));
+    }
+
+    private CircuitBreaker circuitBreaker(String service) {
+        return circuitBreakerRegistry.circuitBreaker(service);
+    }
+
+    private TimeLimiter timeLimiter(String service) {
+        return timeLimiterRegistry.timeLimiter(service);
+    }
+
+    private Bulkhead bulkhead(String service) {
+        return bulkheadRegistry.bulkhead(service);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Accumulates outgoing messages per binding and flushes them back-to-back in a
+// single task on the publishEventScheduler once maxSize messages are pending or
+// the linger time has passed. Flushes of a binding never overlap, so messages
+// leave in the order they were published, which keeps per-partitionKey order.
+// Only the Kafka binder turns a flush into one produce request, with RabbitMQ
+// batching just adds up to linger of latency, so it is enabled in the kafka profile.
+@Component
+public class EventPublisher {
+    private static final Logger LOG = LoggerFactory.getLogger(EventPublisher.class);
+
+    // Concurrent publishers retry their emission for at most this long
+    private static final Duration EMIT_TIMEOUT = Duration.ofMillis(100);
+
+    private final StreamBridge streamBridge;
+    private final Scheduler publishEventScheduler;
+    private final MeterRegistry registry;
+    private final boolean batchingEnabled;
+    private final int maxSize;
+    private final Duration linger;
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EventPublisher(
+            StreamBridge streamBridge,
+            @Qualifier("publishEventScheduler") Scheduler publishEventScheduler,
+            MeterRegistry registry,
+            @Value("${app.eventBatching.enabled:false}") boolean batchingEnabled,
+            @Value("${app.eventBatching.maxSize:100}") int maxSize,
+            @Value("${app.eventBatching.linger:5ms}") Duration linger) {
+        LOG.info("Creates an event publisher, batching enabled: {}, maxSize: {}, linger: {}",
+                batchingEnabled, maxSize, linger);
+        this.streamBridge = streamBridge;
+        this.publishEventScheduler = publishEventScheduler;
+        this.registry = registry;
+        this.batchingEnabled = batchingEnabled;
+        this.maxSize = maxSize;
+        this.linger = linger;
+    }
+
+    public Mono<Void> publish(String bindingName, Message<?> message) {
+        if (!batchingEnabled) {
+            return Mono.fromRunnable(() -> streamBridge.send(bindingName, message))
+                    .subscribeOn(publishEventScheduler).then();
+        }
+        return Mono.defer(() -> {
+            PendingMessage pending = new PendingMessage(message);
+            Buffer buffer = buffer(bindingName);
+            buffer.pending.add(pending);
+            try {
+                buffer.sink.emitNext(pending, retryNonSerialized(EMIT_TIMEOUT));
+            } catch (Sinks.EmissionException ex) {
+                buffer.pending.remove(pending);
+                return Mono.error(ex);
+            }
+            // The pipeline may have failed meanwhile, its sink then drops the message
+            if (buffer.failed) {
+                buffer.complete(pending, new IllegalStateException("Event pipeline of " + bindingName + " failed"));
+            }
+            return pending.sent.asMono();
+        });
+    }
+
+    private Buffer buffer(String bindingName) {
+        return buffers.computeIfAbsent(bindingName, name -> {
+            Buffer buffer = new Buffer();
+            Timer flushTimer = Timer.builder("composite.events.flush")
+                    .tag("binding", name)
+                    .register(registry);
+            DistributionSummary batchSize = DistributionSummary.builder("composite.events.batch.size")
+                    .tag("binding", name)
+                    .register(registry);
+            buffer.sink.asFlux()
+                    .bufferTimeout(maxSize, linger)
+                    // bufferTimeout can't hold back timer triggered batches, buffer them here instead
+                    .onBackpressureBuffer()
+                    .concatMap(batch -> Mono.fromRunnable(() -> {
+                        batchSize.record(batch.size());
+                        flushTimer.record(() -> flush(name, buffer, batch));
+                    }).subscribeOn(publishEventScheduler))
+                    .subscribe(null, error -> failed(name, buffer, error));
+            return buffer;
+        });
+    }
+
+    private void flush(String bindingName, Buffer buffer, List<PendingMessage> batch) {
+        LOG.debug("Flushing {} messages to {}", batch.size(), bindingName);
+        for (PendingMessage pending : batch) {
+            try {
+                streamBridge.send(bindingName, pending.message);
+                buffer.complete(pending, null);
+            } catch (RuntimeException ex) {
+                LOG.warn("Failed to send a message to {}: {}", bindingName, ex.toString());
+                buffer.complete(pending, ex);
+            }
+        }
+    }
+
+    // The next publish to the binding starts a new pipeline, the messages of the
+    // failed one that weren't sent are failed so their publishers don't hang
+    private void failed(String bindingName, Buffer buffer, Throwable error) {
+        LOG.error("Event pipeline of {} failed, restarts it: {}", bindingName, error.toString());
+        buffer.failed = true;
+        buffers.remove(bindingName, buffer);
+        buffer.pending.forEach(pending -> buffer.complete(pending, error));
+    }
+
+    private static Sinks.EmitFailureHandler retryNonSerialized(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        return (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED
+                && System.nanoTime() - deadline < 0;
+    }
+
+    private static class Buffer {
+        private final Sinks.Many<PendingMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
+        private final Set<PendingMessage> pending = ConcurrentHashMap.newKeySet();
+        private volatile boolean failed;
+
+        private void complete(PendingMessage message, Throwable error) {
+            pending.remove(message);
+            if (error == null) {
+                message.sent.tryEmitEmpty();
+            } else {
+                message.sent.tryEmitError(error);
+            }
+        }
+    }
+
+    private static class PendingMessage {
+        private final Message<?> message;
+        private final Sinks.Empty<Void> sent = Sinks.empty();
+
+        private PendingMessage(Message<?> message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the last complete response of a core service call per productId, served
+// by ProductCompositeIntegration instead of an empty list when the call fails.
+// Entries are dropped when the product is deleted.
+@Component
+public class LastKnownGoodCache {
+    private static final Logger LOG = LoggerFactory.getLogger(LastKnownGoodCache.class);
+
+    private final boolean enabled;
+    private final Cache<String, List<?>> cache;
+
+    @Autowired
+    public LastKnownGoodCache(
+            @Value("${app.lastKnownGood.enabled:true}") boolean enabled,
+            @Value("${app.lastKnownGood.maximumSize:10000}") long maximumSize,
+            @Value("${app.lastKnownGood.timeToLive:10m}") Duration timeToLive,
+            MeterRegistry registry) {
+        LOG.info("Creates a last known good cache, enabled: {}, maximumSize: {}, timeToLive: {}",
+                enabled, maximumSize, timeToLive);
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "lastKnownGood");
+    }
+
+    // The elements are passed on as they arrive and stored once the call completes
+    public <T> Flux<T> record(String service, int productId, Flux<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            List<T> elements = new ArrayList<>();
+            return call.doOnNext(elements::add)
+                    .doOnComplete(() -> cache.put(key(service, productId), elements));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String service, int productId) {
+        return enabled ? (List<T>) cache.getIfPresent(key(service, productId)) : null;
+    }
+
+    public void invalidate(int productId) {
+        cache.invalidate(key("recommendation", productId));
+        cache.invalidate(key("review", productId));
+    }
+
+    private static String key(String service, int productId) {
+        return service + ":" + productId;
+    }
+}
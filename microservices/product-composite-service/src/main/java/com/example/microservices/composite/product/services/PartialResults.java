@@ -0,0 +1,29 @@
+package com.example.microservices.composite.product.services;
+
+import reactor.core.publisher.Flux;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Lets the integration tell the composite service that a result was put together
+// from fallbacks, an empty list or the last known good one, instead of the answers
+// of the core services. The flag travels in the Reactor context of the caller.
+public final class PartialResults {
+    private static final String KEY = PartialResults.class.getName();
+
+    private PartialResults() {
+    }
+
+    // Context for a pipeline whose fallbacks should set the given flag
+    public static ContextView track(AtomicBoolean partial) {
+        return Context.of(KEY, partial);
+    }
+
+    public static <T> Flux<T> mark(Flux<T> fallback) {
+        return Flux.deferContextual(context -> {
+            context.<AtomicBoolean>getOrEmpty(KEY).ifPresent(partial -> partial.set(true));
+            return fallback;
+        });
+    }
+}
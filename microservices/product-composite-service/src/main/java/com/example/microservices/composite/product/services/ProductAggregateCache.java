@@ -0,0 +1,88 @@
+package com.example.microservices.composite.product.services;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Entries are invalidated by ProductCompositeIntegration whenever an event is
+// published for a productId. The core services apply the event asynchronously, so
+// a load started right after the publish may still read the old state; the entry
+// is invalidated again after consumerLag to drop such aggregates. A put carries
+// the stamp seen before the aggregate was loaded and is dropped if the same
+// productId was invalidated since.
+@Component
+public class ProductAggregateCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+    private final boolean enabled;
+    private final Cache<Integer, ProductAggregate> cache;
+    private final Duration consumerLag;
+    private final Cache<Integer, Long> invalidatedAt;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ProductAggregateCache(
+            @Value("${app.aggregateCache.enabled:true}") boolean enabled,
+            @Value("${app.aggregateCache.maximumSize:10000}") long maximumSize,
+            @Value("${app.aggregateCache.timeToLive:30s}") Duration timeToLive,
+            @Value("${app.aggregateCache.consumerLag:5s}") Duration consumerLag,
+            MeterRegistry registry) {
+        LOG.info("Creates a product aggregate cache, enabled: {}, maximumSize: {}, timeToLive: {}, consumerLag: {}",
+                enabled, maximumSize, timeToLive, consumerLag);
+        this.enabled = enabled;
+        this.consumerLag = consumerLag;
+        // Loads are bounded by the time limiter, far below the time to live
+        this.invalidatedAt = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "productAggregates");
+    }
+
+    public ProductAggregate get(int productId) {
+        return enabled ? cache.getIfPresent(productId) : null;
+    }
+
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public void put(int productId, ProductAggregate aggregate, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(productId, aggregate);
+        // An invalidation may have raced with the load or with the put itself
+        Long invalidation = invalidatedAt.getIfPresent(productId);
+        if (invalidation != null && invalidation > stamp) {
+            cache.invalidate(productId);
+        }
+    }
+
+    public void invalidate(int productId) {
+        evict(productId);
+        if (!consumerLag.isZero()) {
+            Mono.delay(consumerLag).subscribe(v -> evict(productId));
+        }
+    }
+
+    private void evict(int productId) {
+        invalidatedAt.put(productId, invalidations.incrementAndGet());
+        cache.invalidate(productId);
+    }
+}
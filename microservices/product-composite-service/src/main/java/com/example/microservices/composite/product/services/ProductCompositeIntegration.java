@@ -11,12 +11,14 @@ import com.example.api.exceptions.InvalidInputException;
 import com.example.api.exceptions.NotFoundException;
 import com.example.util.http.HttpErrorInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.health.Health;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
@@ -24,112 +26,174 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Scheduler;
 
 import java.io.IOException;
-import java.util.logging.Level;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Component
 public class ProductCompositeIntegration implements ProductService, RecommendationService, ReviewService {
     private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
     private final ObjectMapper mapper;
-    private final StreamBridge streamBridge;
-    private final Scheduler publishEventScheduler;
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+    private final EventPublisher eventPublisher;
     private final WebClient webClient;
+    private final ProductAggregateCache aggregateCache;
+    private final RequestHedger hedger;
+    private final DownstreamResilience resilience;
+    private final LastKnownGoodCache lastKnownGood;
+    private final MeterRegistry registry;
 
     private static final String PRODUCT_SERVICE_URL = "http://product";
     private static final String RECOMMENDATION_SERVICE_URL = "http://recommendation";
     private static final String REVIEW_SERVICE_URL = "http://review";
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
 
     @Autowired
     public ProductCompositeIntegration(
-            @Qualifier("publishEventScheduler") Scheduler publishEventScheduler,
             WebClient.Builder webClientBuilder,
             ObjectMapper mapper,
-            StreamBridge streamBridge) {
-        this.publishEventScheduler = publishEventScheduler;
+            EventPublisher eventPublisher,
+            ProductAggregateCache aggregateCache,
+            RequestHedger hedger,
+            DownstreamResilience resilience,
+            LastKnownGoodCache lastKnownGood,
+            MeterRegistry registry) {
         this.webClient = webClientBuilder.build();
         this.mapper = mapper;
-        this.streamBridge = streamBridge;
+        this.eventPublisher = eventPublisher;
+        this.aggregateCache = aggregateCache;
+        this.hedger = hedger;
+        this.resilience = resilience;
+        this.lastKnownGood = lastKnownGood;
+        this.registry = registry;
     }
 
     @Override
     public Mono<Product> getProduct(int productId) {
-        String url = PRODUCT_SERVICE_URL + "/product/" + productId;
-        return webClient.get().uri(url).retrieve()
-                .bodyToMono(Product.class)
-                .log(LOG.getName(), Level.FINE)
+        return resilience.protect("product", hedger.hedge("product", () -> webClient.get()
+                        .uri(PRODUCT_SERVICE_URL + "/product/{productId}", productId)
+                        .retrieve().bodyToMono(Product.class)))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> handleException(ex));
+    }
+
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        LOG.debug("Will call getProducts API for {} products", productIds.size());
+        return resilience.protect("product", webClient.get()
+                        .uri(PRODUCT_SERVICE_URL + "/product?productIds={productIds}", joinIds(productIds))
+                        .retrieve()
+                        .bodyToFlux(Product.class))
                 .onErrorMap(WebClientResponseException.class,
                         ex -> handleException(ex));
     }
 
     @Override
     public Mono<Product> createProduct(Product body) {
-        return Mono.fromCallable(() -> {
-            sendMessage("products-out-0", new Event(Event.Type.CREATE,
-                    body.getProductId(), body));
-            return body;
-        }).subscribeOn(publishEventScheduler);
+        return sendMessage("products-out-0", new Event(Event.Type.CREATE,
+                body.getProductId(), body)).thenReturn(body);
     }
 
     @Override
     public Mono<Void> deleteProduct(int productId) {
-        return Mono.fromRunnable(() -> sendMessage("products-out-0",
-                        new Event(Event.Type.DELETE, productId, null)))
-                .subscribeOn(publishEventScheduler).then();
+        return sendMessage("products-out-0",
+                new Event(Event.Type.DELETE, productId, null));
     }
 
     @Override
     public Flux<Recommendation> getRecommendations(int productId) {
-        String url = RECOMMENDATION_SERVICE_URL + "/recommendation?productId=" + productId;
-        LOG.debug("Will call getRecommendations API on URL: {}", url);
+        LOG.debug("Will call getRecommendations API for productId: {}", productId);
+        // Return the last known good or an empty result if something goes wrong to
+        // make it possible for the composite service to return partial responses
+        return withLastKnownGood("recommendation", "getRecommendations", productId,
+                resilience.protect("recommendation", hedger.hedgeFlux("recommendation", () -> webClient.get()
+                        .uri(RECOMMENDATION_SERVICE_URL + "/recommendation?productId={productId}", productId)
+                        .retrieve().bodyToFlux(Recommendation.class))));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+        LOG.debug("Will call getRecommendationsForProducts API for {} products", productIds.size());
         // Return an empty result if something goes wrong to make it possible for
         // the composite service to return partial responses
-        return webClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class)
-                .log(LOG.getName(), Level.FINE).onErrorResume(error -> Flux.empty());
+        return resilience.protect("recommendation", webClient.get()
+                        .uri(RECOMMENDATION_SERVICE_URL + "/recommendation?productIds={productIds}", joinIds(productIds))
+                        .retrieve().bodyToFlux(Recommendation.class))
+                .onErrorResume(error -> fallback("recommendation", "getRecommendationsForProducts", error));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsPage(int productId, int afterRecommendationId, Integer size) {
+        LOG.debug("Will call getRecommendationsPage API for productId: {}, after: {}, size: {}",
+                productId, afterRecommendationId, size);
+        // A page is requested on its own, so errors are passed on instead of
+        // being turned into an empty page that looks like the last one
+        return resilience.protect("recommendation", webClient.get()
+                        .uri(RECOMMENDATION_SERVICE_URL + "/recommendation/page?productId={productId}&after={after}&size={size}",
+                                productId, afterRecommendationId, size)
+                        .retrieve().bodyToFlux(Recommendation.class))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> handleException(ex));
     }
 
     @Override
     public Mono<Recommendation> createRecommendation(Recommendation body) {
-        return Mono.fromCallable(() -> {
-            sendMessage("recommendations-out-0",
-                    new Event(Event.Type.CREATE, body.getProductId(), body));
-            return body;
-        }).subscribeOn(publishEventScheduler);
+        return sendMessage("recommendations-out-0",
+                new Event(Event.Type.CREATE, body.getProductId(), body)).thenReturn(body);
     }
 
     @Override
     public Mono<Void> deleteRecommendations(int productId) {
-        return Mono.fromRunnable(() ->
-                        sendMessage("recommendations-out-0",
-                                new Event(Event.Type.DELETE, productId, null)))
-                .subscribeOn(publishEventScheduler).then();
+        return sendMessage("recommendations-out-0",
+                new Event(Event.Type.DELETE, productId, null));
     }
 
     @Override
     public Mono<Review> createReview(Review body) {
-        return Mono.fromCallable(() -> {
-            sendMessage("reviews-out-0", new Event(Event.Type.CREATE, body.getProductId(), body));
-            return body;
-        }).subscribeOn(publishEventScheduler);
+        return sendMessage("reviews-out-0",
+                new Event(Event.Type.CREATE, body.getProductId(), body)).thenReturn(body);
     }
 
     @Override
     public Flux<Review> getReviews(int productId) {
-        String url = REVIEW_SERVICE_URL + "/review?productId=" + productId;
-        LOG.debug("Will call getReviews API on URL: {}", url);
+        LOG.debug("Will call getReviews API for productId: {}", productId);
+        // Return the last known good or an empty result if something goes wrong to
+        // make it possible for the composite service to return partial responses
+        return withLastKnownGood("review", "getReviews", productId,
+                resilience.protect("review", hedger.hedgeFlux("review", () -> webClient.get()
+                        .uri(REVIEW_SERVICE_URL + "/review?productId={productId}", productId)
+                        .retrieve().bodyToFlux(Review.class))));
+    }
+
+    @Override
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+        LOG.debug("Will call getReviewsForProducts API for {} products", productIds.size());
         // Return an empty result if something goes wrong to make it possible
         // for the composite service to return partial responses
-        return webClient.get().uri(url).retrieve().bodyToFlux(Review.class)
-                .log(LOG.getName(), Level.FINE).onErrorResume(error -> Flux.empty());
+        return resilience.protect("review", webClient.get()
+                        .uri(REVIEW_SERVICE_URL + "/review?productIds={productIds}", joinIds(productIds))
+                        .retrieve().bodyToFlux(Review.class))
+                .onErrorResume(error -> fallback("review", "getReviewsForProducts", error));
+    }
+
+    @Override
+    public Flux<Review> getReviewsPage(int productId, int afterReviewId, Integer size) {
+        LOG.debug("Will call getReviewsPage API for productId: {}, after: {}, size: {}",
+                productId, afterReviewId, size);
+        return resilience.protect("review", webClient.get()
+                        .uri(REVIEW_SERVICE_URL + "/review/page?productId={productId}&after={after}&size={size}",
+                                productId, afterReviewId, size)
+                        .retrieve().bodyToFlux(Review.class))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> handleException(ex));
     }
 
     @Override
     public Mono<Void> deleteReviews(int productId) {
-        return Mono.fromRunnable(() -> {
-            sendMessage("reviews-out-0",
-                    new Event(Event.Type.DELETE, productId, null));
-        }).subscribeOn(publishEventScheduler).then();
+        return sendMessage("reviews-out-0",
+                new Event(Event.Type.DELETE, productId, null));
     }
 
     public Mono<Health> getProductHealth() {
@@ -143,8 +207,17 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         return getHealth(REVIEW_SERVICE_URL);
     }
 
+    private String joinIds(List<Integer> productIds) {
+        return productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    // Error bodies come in Smile too when the request preferred it
     private String getErrorMessage(WebClientResponseException ex) {
         try {
+            MediaType contentType = ex.getHeaders().getContentType();
+            if (SMILE.isCompatibleWith(contentType)) {
+                return smileMapper.readValue(ex.getResponseBodyAsByteArray(), HttpErrorInfo.class).getMessage();
+            }
             return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
         } catch (IOException ioex) {
             return ioex.getMessage();
@@ -170,11 +243,54 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         }
     }
 
-    private void sendMessage(String bindingName, Event event) {
-        LOG.debug("Sending a {} message to {}", event.getEventType(), bindingName);
-        Message message = MessageBuilder.withPayload(event)
-                .setHeader("partitionKey", event.getKey()).build();
-        streamBridge.send(bindingName, message);
+    private Mono<Void> sendMessage(String bindingName, Event event) {
+        return Mono.defer(() -> {
+            LOG.debug("Sending a {} message to {}", event.getEventType(), bindingName);
+            Message message = MessageBuilder.withPayload(event)
+                    .setHeader("partitionKey", event.getKey()).build();
+            Timer.Sample sample = Timer.start(registry);
+            return eventPublisher.publish(bindingName, message)
+                    .doOnSuccess(v -> sample.stop(publishTimer(bindingName, "SUCCESS")))
+                    .doOnError(ex -> sample.stop(publishTimer(bindingName, "ERROR")));
+        }).doOnSuccess(v -> {
+            aggregateCache.invalidate((Integer) event.getKey());
+            if (event.getEventType() == Event.Type.DELETE) {
+                lastKnownGood.invalidate((Integer) event.getKey());
+            }
+        });
+    }
+
+    private Timer publishTimer(String bindingName, String outcome) {
+        return Timer.builder("composite.events.publish")
+                .tags("binding", bindingName, "outcome", outcome)
+                .register(registry);
+    }
+
+    // The last known good list is only served if the call failed before emitting
+    // anything, otherwise it would be appended to the elements already passed on
+    private <T> Flux<T> withLastKnownGood(String service, String operation, int productId, Flux<T> call) {
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            return lastKnownGood.record(service, productId, call)
+                    .doOnNext(element -> emitted.set(true))
+                    .onErrorResume(error -> fallback(service, operation, error,
+                            emitted.get() ? null : lastKnownGood.<T>get(service, productId)));
+        });
+    }
+
+    private <T> Flux<T> fallback(String service, String operation, Throwable error) {
+        return fallback(service, operation, error, null);
+    }
+
+    // The WebClient calls themselves are timed as http.client.requests, this
+    // counts the partial responses returned when a core service call fails
+    private <T> Flux<T> fallback(String service, String operation, Throwable error, List<T> lastKnownGood) {
+        String source = lastKnownGood != null ? "lastKnownGood" : "empty";
+        LOG.debug("{} failed, returns the {} result: {}", operation, source, error.toString());
+        registry.counter("composite.downstream.fallbacks",
+                "service", service, "operation", operation, "source", source)
+                .increment();
+        return PartialResults.mark(lastKnownGood != null ? Flux.fromIterable(lastKnownGood) : Flux.empty());
     }
 
     private Mono<Health> getHealth(String url) {
@@ -184,7 +300,6 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
                 .map(s -> new Health.Builder().up().build())
                 .onErrorResume(ex -> Mono.just(
                         new Health.Builder().down(ex).build()
-                ))
-                .log(LOG.getName(), Level.FINE);
+                ));
     }
 }
@@ -4,37 +4,89 @@ import com.example.api.composite.product.*;
 import com.example.api.core.product.Product;
 import com.example.api.core.recommendation.Recommendation;
 import com.example.api.core.review.Review;
+import com.example.api.exceptions.InvalidInputException;
+import com.example.util.http.ETagUtil;
+import com.example.util.http.PagingUtil;
 import com.example.util.http.ServiceUtil;
+import com.example.util.tracing.SignalTracer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.logging.Level;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @RestController
 public class ProductCompositeServiceImpl implements ProductCompositeService {
     private static final Logger LOG =
             LoggerFactory.getLogger(ProductCompositeServiceImpl.class);
     private final ServiceUtil serviceUtil;
+    private final PagingUtil pagingUtil;
+    private final SignalTracer tracer;
+    private final ETagUtil eTagUtil;
 
     private final ProductCompositeIntegration integration;
+    private final ProductAggregateCache aggregateCache;
+    private final ProductReadModel readModel;
+    private final int maxBatchSize;
+    private final SingleFlight<Integer, ProductAggregate> inFlightProducts;
 
     @Autowired
     public ProductCompositeServiceImpl(
             ServiceUtil serviceUtil,
-            ProductCompositeIntegration integration) {
+            PagingUtil pagingUtil,
+            SignalTracer tracer,
+            ETagUtil eTagUtil,
+            ProductCompositeIntegration integration,
+            ProductAggregateCache aggregateCache,
+            ProductReadModel readModel,
+            MeterRegistry registry,
+            @Value("${app.maxBatchSize:100}") int maxBatchSize,
+            @Value("${app.requestCoalescing.enabled:true}") boolean requestCoalescing) {
         this.serviceUtil = serviceUtil;
+        this.pagingUtil = pagingUtil;
+        this.tracer = tracer;
+        this.eTagUtil = eTagUtil;
         this.integration = integration;
+        this.aggregateCache = aggregateCache;
+        this.readModel = readModel;
+        this.maxBatchSize = maxBatchSize;
+        this.inFlightProducts = new SingleFlight<>("productAggregate", requestCoalescing, registry);
     }
 
     @Override
     public Mono<ProductAggregate> getProduct(int productId) {
         LOG.info("Will get composite product info for product.id={}", productId);
+        return findProduct(productId).transform(eTagUtil.mono(ProductCompositeServiceImpl::eTag));
+    }
+
+    private Mono<ProductAggregate> findProduct(int productId) {
+        ProductAggregate cached = aggregateCache.get(productId);
+        if (cached != null) {
+            LOG.debug("getCompositeProduct: found product.id={} in the aggregate cache", productId);
+            return Mono.just(cached);
+        }
+        ProductAggregate materialized = readModel.get(productId, serviceUtil.getServiceAddress());
+        if (materialized != null) {
+            LOG.debug("getCompositeProduct: found product.id={} in the read model", productId);
+            return Mono.just(materialized);
+        }
+        // Concurrent requests for the same product share one set of downstream calls
+        return inFlightProducts.execute(productId, () -> loadProduct(productId));
+    }
+
+    // Aggregates with fallback results are returned but not cached, otherwise a
+    // short outage of a core service would be served for the whole time to live
+    private Mono<ProductAggregate> loadProduct(int productId) {
+        long stamp = aggregateCache.stamp();
+        AtomicBoolean partial = new AtomicBoolean();
         return Mono.zip(
                         values -> createProductAggregate(
                                 (Product) values[0],
@@ -45,8 +97,139 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
                         integration.getProduct(productId),
                         integration.getRecommendations(productId).collectList(),
                         integration.getReviews(productId).collectList()
-                ).doOnError(ex -> LOG.warn("getCompositeProduct failed: {}", ex.toString()))
-                .log(LOG.getName(), Level.FINE);
+                ).doOnNext(aggregate -> {
+                    if (!partial.get()) {
+                        aggregateCache.put(productId, aggregate, stamp);
+                    }
+                })
+                .contextWrite(PartialResults.track(partial))
+                .doOnError(ex -> LOG.warn("getCompositeProduct failed: {}", ex.toString()))
+                .transform(tracer.mono("loadProduct"));
+    }
+
+    @Override
+    public Flux<ProductAggregateItem> getProductStream(int productId) {
+        LOG.info("Will stream composite product info for product.id={}", productId);
+        ProductAggregate cached = aggregateCache.get(productId);
+        if (cached != null) {
+            LOG.debug("getCompositeProductStream: found product.id={} in the aggregate cache", productId);
+            return toItems(cached);
+        }
+        ProductAggregate materialized = readModel.get(productId, serviceUtil.getServiceAddress());
+        if (materialized != null) {
+            LOG.debug("getCompositeProductStream: found product.id={} in the read model", productId);
+            return toItems(materialized);
+        }
+        Mono<ProductAggregateItem> header = integration.getProduct(productId)
+                .map(p -> ProductAggregateItem.product(p.getProductId(), p.getName(), p.getWeight(),
+                        p.getServiceAddress()));
+        Flux<ProductAggregateItem> summaries = Flux.merge(
+                integration.getRecommendations(productId)
+                        .map(r -> ProductAggregateItem.recommendation(productId, toSummary(r),
+                                r.getServiceAddress())),
+                integration.getReviews(productId)
+                        .map(r -> ProductAggregateItem.review(productId, toSummary(r),
+                                r.getServiceAddress())));
+        // All three calls start at once, summaries arriving before the product are
+        // held back, at most one prefetch worth, so the product is always emitted first
+        return Flux.mergeSequential(header, summaries)
+                .doOnError(ex -> LOG.warn("getCompositeProductStream failed: {}", ex.toString()))
+                .transform(tracer.flux("getProductStream"));
+    }
+
+    private Flux<ProductAggregateItem> toItems(ProductAggregate aggregate) {
+        int productId = aggregate.getProductId();
+        ServiceAddresses addresses = aggregate.getServiceAddresses();
+        return Flux.concat(
+                Mono.just(ProductAggregateItem.product(productId, aggregate.getName(),
+                        aggregate.getWeight(), addresses.getPro())),
+                Flux.fromIterable(aggregate.getRecommendations())
+                        .map(r -> ProductAggregateItem.recommendation(productId, r, addresses.getRec())),
+                Flux.fromIterable(aggregate.getReviews())
+                        .map(r -> ProductAggregateItem.review(productId, r, addresses.getRev())));
+    }
+
+    @Override
+    public Flux<ProductAggregate> getProducts(List<Integer> productIds) {
+        List<Integer> ids = productIds.stream().distinct().collect(Collectors.toList());
+        if (ids.size() > maxBatchSize) {
+            throw new InvalidInputException("Too many productIds: " + ids.size() +
+                    ", max is " + maxBatchSize);
+        }
+        LOG.info("Will get composite product info for {} products", ids.size());
+
+        Map<Integer, ProductAggregate> aggregates = new HashMap<>();
+        List<Integer> missingIds = new ArrayList<>();
+        ids.forEach(id -> {
+            ProductAggregate cached = aggregateCache.get(id);
+            if (cached != null) {
+                aggregates.put(id, cached);
+            } else {
+                missingIds.add(id);
+            }
+        });
+        LOG.debug("getCompositeProducts: {} found in the aggregate cache, {} to fetch",
+                aggregates.size(), missingIds.size());
+        if (missingIds.isEmpty()) {
+            return Flux.fromIterable(ids).map(aggregates::get);
+        }
+
+        // One downstream call per core service, regardless of the number of products
+        long stamp = aggregateCache.stamp();
+        AtomicBoolean partial = new AtomicBoolean();
+        return Mono.zip(
+                        integration.getProducts(missingIds).collectList(),
+                        integration.getRecommendationsForProducts(missingIds)
+                                .collectMultimap(Recommendation::getProductId),
+                        integration.getReviewsForProducts(missingIds)
+                                .collectMultimap(Review::getProductId)
+                ).flatMapMany(values -> {
+                    String serviceAddress = serviceUtil.getServiceAddress();
+                    values.getT1().forEach(product -> {
+                        int productId = product.getProductId();
+                        ProductAggregate aggregate = createProductAggregate(product,
+                                new ArrayList<>(values.getT2().getOrDefault(productId, Collections.emptyList())),
+                                new ArrayList<>(values.getT3().getOrDefault(productId, Collections.emptyList())),
+                                serviceAddress);
+                        if (!partial.get()) {
+                            aggregateCache.put(productId, aggregate, stamp);
+                        }
+                        aggregates.put(productId, aggregate);
+                    });
+                    // Keep the requested order, products that don't exist are left out
+                    return Flux.fromIterable(ids).filter(aggregates::containsKey).map(aggregates::get);
+                })
+                .contextWrite(PartialResults.track(partial))
+                .doOnError(ex -> LOG.warn("getCompositeProducts failed: {}", ex.toString()))
+                .transform(tracer.flux("getProducts"));
+    }
+
+    @Override
+    public Flux<RecommendationSummary> getProductRecommendations(int productId, int afterRecommendationId, Integer size) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        int pageSize = pagingUtil.getPageSize(size);
+        LOG.info("Will get {} recommendations for product.id={} after recommendationId={}",
+                pageSize, productId, afterRecommendationId);
+        return integration.getRecommendationsPage(productId, afterRecommendationId, pageSize)
+                .map(ProductCompositeServiceImpl::toSummary)
+                .doOnError(ex -> LOG.warn("getProductRecommendations failed: {}", ex.toString()))
+                .transform(tracer.flux("getProductRecommendations"));
+    }
+
+    @Override
+    public Flux<ReviewSummary> getProductReviews(int productId, int afterReviewId, Integer size) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        int pageSize = pagingUtil.getPageSize(size);
+        LOG.info("Will get {} reviews for product.id={} after reviewId={}",
+                pageSize, productId, afterReviewId);
+        return integration.getReviewsPage(productId, afterReviewId, pageSize)
+                .map(ProductCompositeServiceImpl::toSummary)
+                .doOnError(ex -> LOG.warn("getProductReviews failed: {}", ex.toString()))
+                .transform(tracer.flux("getProductReviews"));
     }
 
     @Override
@@ -99,14 +282,14 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
                             integration.deleteRecommendations(productId),
                             integration.deleteReviews(productId)
                     ).doOnError(ex -> LOG.warn("delete failed: {}", ex.toString()))
-                    .log(LOG.getName(), Level.FINE).then();
+                    .transform(tracer.mono("deleteProduct")).then();
         } catch (RuntimeException re) {
             LOG.warn("deleteCompositeProduct failed: {}", re.toString());
             throw re;
         }
     }
 
-    private ProductAggregate createProductAggregate(
+    static ProductAggregate createProductAggregate(
             Product product,
             List<Recommendation> recommendations,
             List<Review> reviews,
@@ -118,18 +301,13 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 
         List<RecommendationSummary> recommendationSummaries =
                 (recommendations == null) ? null :
-                        recommendations.stream().map(r ->
-                                new RecommendationSummary(r.getRecommendationId(),
-                                        r.getAuthor(),
-                                        r.getRate(),
-                                        r.getContent())).collect(Collectors.toList());
+                        recommendations.stream().map(ProductCompositeServiceImpl::toSummary)
+                                .collect(Collectors.toList());
 
         List<ReviewSummary> reviewSummaries =
                 (reviews == null) ? null :
-                        reviews.stream().map(r ->
-                                new ReviewSummary(r.getReviewId(),
-                                        r.getAuthor(),
-                                        r.getSubject(), r.getContent())).collect(Collectors.toList());
+                        reviews.stream().map(ProductCompositeServiceImpl::toSummary)
+                                .collect(Collectors.toList());
 
         String productAddress = product.getServiceAddress();
         String reviewAddress = (reviews != null && reviews.size() > 0) ?
@@ -144,4 +322,34 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
                 reviewSummaries, serviceAddresses);
 
     }
+
+    // Summaries carry no versions, so the combined ETag hashes the content of the
+    // aggregate instead. Service addresses are left out, every instance gives the same ETag
+    private static String eTag(ProductAggregate aggregate) {
+        LongStream.Builder values = LongStream.builder()
+                .add(aggregate.getProductId())
+                .add(Objects.hash(aggregate.getName(), aggregate.getWeight()));
+        if (aggregate.getRecommendations() != null) {
+            aggregate.getRecommendations().forEach(r -> values.add(r.getRecommendationId())
+                    .add(Objects.hash(r.getAuthor(), r.getRate(), r.getContent())));
+        }
+        if (aggregate.getReviews() != null) {
+            aggregate.getReviews().forEach(r -> values.add(r.getReviewId())
+                    .add(Objects.hash(r.getAuthor(), r.getSubject(), r.getContent())));
+        }
+        return ETagUtil.weakETag(values.build().toArray());
+    }
+
+    private static RecommendationSummary toSummary(Recommendation r) {
+        return new RecommendationSummary(r.getRecommendationId(),
+                r.getAuthor(),
+                r.getRate(),
+                r.getContent());
+    }
+
+    private static ReviewSummary toSummary(Review r) {
+        return new ReviewSummary(r.getReviewId(),
+                r.getAuthor(),
+                r.getSubject(), r.getContent());
+    }
 }
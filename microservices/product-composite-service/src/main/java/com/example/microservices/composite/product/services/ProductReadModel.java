@@ -0,0 +1,171 @@
+package com.example.microservices.composite.product.services;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.example.api.core.product.Product;
+import com.example.api.core.recommendation.Recommendation;
+import com.example.api.core.review.Review;
+import com.example.api.event.Event;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+// In-memory aggregates folded from the product, recommendation and review events
+// consumed in the read_model profile. These are the events the composite publishes,
+// not what the core services stored, so the core services' own rules are applied
+// here as well: the first CREATE of a product, recommendation or review wins, later
+// ones are rejected as duplicate keys by the core services, and events with an
+// invalid productId end up in their dead letter queues. The events of a composite
+// write are published concurrently to three destinations, so nothing tells when an
+// aggregate is complete. An entry is only served once no event has changed it for
+// settleTime, until then getProduct calls the core services. Events are applied by
+// id, so redelivered events leave the aggregate unchanged.
+@Component
+public class ProductReadModel {
+    private static final Logger LOG = LoggerFactory.getLogger(ProductReadModel.class);
+
+    private final boolean enabled;
+    private final long settleNanos;
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Timer productStaleness;
+    private final Timer recommendationStaleness;
+    private final Timer reviewStaleness;
+
+    @Autowired
+    public ProductReadModel(
+            @Value("${app.readModel.enabled:false}") boolean enabled,
+            @Value("${app.readModel.settleTime:5s}") Duration settleTime,
+            MeterRegistry registry) {
+        LOG.info("Product read model enabled: {}, settleTime: {}", enabled, settleTime);
+        this.enabled = enabled;
+        this.settleNanos = settleTime.toNanos();
+        this.productStaleness = stalenessTimer("products", registry);
+        this.recommendationStaleness = stalenessTimer("recommendations", registry);
+        this.reviewStaleness = stalenessTimer("reviews", registry);
+        registry.gaugeMapSize("composite.readmodel.products", Tags.empty(), entries);
+    }
+
+    public ProductAggregate get(int productId, String serviceAddress) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.product == null || System.nanoTime() - entry.changedAt < settleNanos) {
+                return null;
+            }
+            return ProductCompositeServiceImpl.createProductAggregate(entry.product,
+                    new ArrayList<>(entry.recommendations.values()),
+                    new ArrayList<>(entry.reviews.values()),
+                    serviceAddress);
+        }
+    }
+
+    public void applyProduct(Event<Integer, Product> event) {
+        int productId = event.getKey();
+        if (event.getEventType() == Event.Type.CREATE) {
+            if (isValid(productId)) {
+                update(productId, entry -> {
+                    if (entry.product == null) {
+                        entry.product = event.getData();
+                    }
+                });
+            }
+        } else {
+            entries.remove(productId);
+        }
+        recordStaleness(productStaleness, event);
+    }
+
+    public void applyRecommendation(Event<Integer, Recommendation> event) {
+        int productId = event.getKey();
+        if (event.getEventType() == Event.Type.CREATE) {
+            if (isValid(productId)) {
+                Recommendation recommendation = event.getData();
+                update(productId, entry -> entry.recommendations.putIfAbsent(
+                        recommendation.getRecommendationId(), recommendation));
+            }
+        } else {
+            remove(productId, entry -> entry.recommendations.clear());
+        }
+        recordStaleness(recommendationStaleness, event);
+    }
+
+    public void applyReview(Event<Integer, Review> event) {
+        int productId = event.getKey();
+        if (event.getEventType() == Event.Type.CREATE) {
+            if (isValid(productId)) {
+                Review review = event.getData();
+                update(productId, entry -> entry.reviews.putIfAbsent(review.getReviewId(), review));
+            }
+        } else {
+            remove(productId, entry -> entry.reviews.clear());
+        }
+        recordStaleness(reviewStaleness, event);
+    }
+
+    // Matches the validation of the core services
+    private static boolean isValid(int productId) {
+        return productId >= 1;
+    }
+
+    private void update(int productId, Consumer<Entry> change) {
+        entries.compute(productId, (id, entry) -> {
+            Entry current = entry != null ? entry : new Entry();
+            synchronized (current) {
+                change.accept(current);
+                current.changedAt = System.nanoTime();
+            }
+            return current;
+        });
+    }
+
+    // Deletes don't create entries for products that are already gone
+    private void remove(int productId, Consumer<Entry> change) {
+        entries.computeIfPresent(productId, (id, entry) -> {
+            synchronized (entry) {
+                change.accept(entry);
+                entry.changedAt = System.nanoTime();
+            }
+            return entry;
+        });
+    }
+
+    // The time from an event being created until it is applied
+    private void recordStaleness(Timer timer, Event<Integer, ?> event) {
+        ZonedDateTime createdAt = event.getEventCreatedAt();
+        if (createdAt != null) {
+            timer.record(Duration.between(createdAt, ZonedDateTime.now()));
+        }
+    }
+
+    private static Timer stalenessTimer(String destination, MeterRegistry registry) {
+        return Timer.builder("composite.readmodel.staleness")
+                .tag("destination", destination)
+                .register(registry);
+    }
+
+    private static class Entry {
+        private Product product;
+        private long changedAt;
+        private final Map<Integer, Recommendation> recommendations = new TreeMap<>();
+        private final Map<Integer, Review> reviews = new TreeMap<>();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.microservices.composite.product.services;
+
+import com.example.api.core.product.Product;
+import com.example.api.core.recommendation.Recommendation;
+import com.example.api.core.review.Review;
+import com.example.api.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.function.Consumer;
+
+// Consumes the events published by the composite itself and folds them into the
+// ProductReadModel. Every instance has its own read model, so it consumes in an
+// anonymous group of its own and gets all events, not a share of them.
+@Profile("read_model")
+@Configuration
+public class ReadModelConfiguration {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadModelConfiguration.class);
+
+    private final ProductReadModel readModel;
+
+    @Autowired
+    public ReadModelConfiguration(ProductReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    @Bean
+    public Consumer<Event<Integer, Product>> productReadModel() {
+        return event -> {
+            LOG.debug("Read model: {} product {}", event.getEventType(), event.getKey());
+            readModel.applyProduct(event);
+        };
+    }
+
+    @Bean
+    public Consumer<Event<Integer, Recommendation>> recommendationReadModel() {
+        return event -> {
+            LOG.debug("Read model: {} recommendations of product {}", event.getEventType(), event.getKey());
+            readModel.applyRecommendation(event);
+        };
+    }
+
+    @Bean
+    public Consumer<Event<Integer, Review>> reviewReadModel() {
+        return event -> {
+            LOG.debug("Read model: {} reviews of product {}", event.getEventType(), event.getKey());
+            readModel.applyReview(event);
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Sends a second attempt of a call that hasn't answered within the configured
+// percentile of the recent answer times of its service and returns whichever
+// attempt answers first, the other one is cancelled. A failed attempt only
+// answers when the other one has failed too or was never sent. Every call adds
+// maxRate credits to the budget of its service and a hedge costs one, so at most
+// about maxRate of the calls are hedged. The load balancer picks the instance of each
+// attempt, with round robin the hedge normally goes to another instance.
+@Component
+public class RequestHedger {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestHedger.class);
+
+    // Budget credits are kept in thousandths of a hedge
+    private static final long HEDGE_COST = 1000;
+    private static final long MAX_CREDITS = 10 * HEDGE_COST;
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final long creditPerCall;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, ServiceHedging> services = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestHedger(
+            @Value("${app.hedging.enabled:false}") boolean enabled,
+            @Value("${app.hedging.percentile:0.95}") double percentile,
+            @Value("${app.hedging.minDelay:10ms}") Duration minDelay,
+            @Value("${app.hedging.maxRate:0.05}") double maxRate,
+            MeterRegistry registry) {
+        LOG.info("Request hedging enabled: {}, percentile: {}, minDelay: {}, maxRate: {}",
+                enabled, percentile, minDelay, maxRate);
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.creditPerCall = Math.round(maxRate * HEDGE_COST);
+        this.registry = registry;
+    }
+
+    public <T> Mono<T> hedge(String service, Supplier<Mono<T>> attempt) {
+        return Mono.from(hedgeFlux(service, () -> attempt.get().flux()));
+    }
+
+    public <T> Flux<T> hedgeFlux(String service, Supplier<Flux<T>> attempt) {
+        if (!enabled) {
+            return Flux.defer(attempt);
+        }
+        ServiceHedging hedging = services.computeIfAbsent(service, ServiceHedging::new);
+        return Flux.defer(() -> {
+            hedging.addCredit();
+            long start = System.nanoTime();
+            AtomicBoolean answered = new AtomicBoolean();
+            AtomicInteger running = new AtomicInteger();
+
+            Flux<T> first = attempt(attempt, running)
+                    .doOnEach(signal -> {
+                        if (answered.compareAndSet(false, true)) {
+                            hedging.answered(start, false);
+                        }
+                    });
+            Flux<T> second = Mono.delay(hedging.delay()).flatMapMany(tick -> {
+                if (!hedging.tryAcquire()) {
+                    return Flux.never();
+                }
+                return attempt(attempt, running)
+                        .doOnEach(signal -> {
+                            if (answered.compareAndSet(false, true)) {
+                                hedging.answered(start, true);
+                            }
+                        });
+            });
+            return Flux.firstWithSignal(first, second);
+        });
+    }
+
+    // An attempt that fails before it emits anything doesn't answer while the
+    // other attempt is still running, the error is passed on once both have failed
+    private static <T> Flux<T> attempt(Supplier<Flux<T>> attempt, AtomicInteger running) {
+        AtomicBoolean emitted = new AtomicBoolean();
+        return Flux.defer(() -> {
+                    running.incrementAndGet();
+                    return attempt.get();
+                })
+                .doOnNext(value -> emitted.set(true))
+                .onErrorResume(error -> !emitted.get() && running.decrementAndGet() > 0
+                        ? Flux.never() : Flux.error(error));
+    }
+
+    private class ServiceHedging {
+        private final String service;
+        private final Timer answerTime;
+        private final Counter issued;
+        private final Counter won;
+        private final Counter throttled;
+        private final AtomicLong credits = new AtomicLong(MAX_CREDITS);
+        private volatile Duration delay = minDelay;
+        private volatile long nextRefresh = System.nanoTime();
+
+        private ServiceHedging(String service) {
+            this.service = service;
+            this.answerTime = Timer.builder("composite.hedging.answer.time")
+                    .tag("service", service)
+                    .publishPercentiles(percentile)
+                    .distributionStatisticExpiry(Duration.ofMinutes(1))
+                    .register(registry);
+            this.issued = registry.counter("composite.hedges.issued", "service", service);
+            this.won = registry.counter("composite.hedges.won", "service", service);
+            this.throttled = registry.counter("composite.hedges.throttled", "service", service);
+        }
+
+        // A hedge that wins gives a lower bound on the answer time of the first
+        // attempt, recording it keeps the percentile from drifting down
+        private void answered(long start, boolean byHedge) {
+            answerTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (byHedge) {
+                won.increment();
+            }
+        }
+
+        private Duration delay() {
+            long now = System.nanoTime();
+            if (now - nextRefresh >= 0) {
+                nextRefresh = now + DELAY_REFRESH_NANOS;
+                ValueAtPercentile[] values = answerTime.takeSnapshot().percentileValues();
+                long nanos = values.length > 0 ? (long) values[0].value(TimeUnit.NANOSECONDS) : 0;
+                delay = nanos > minDelay.toNanos() ? Duration.ofNanos(nanos) : minDelay;
+                LOG.debug("Hedging delay for {}: {}", service, delay);
+            }
+            return delay;
+        }
+
+        private void addCredit() {
+            credits.accumulateAndGet(creditPerCall, (current, credit) -> Math.min(MAX_CREDITS, current + credit));
+        }
+
+        private boolean tryAcquire() {
+            long current;
+            do {
+                current = credits.get();
+                if (current < HEDGE_COST) {
+                    throttled.increment();
+                    return false;
+                }
+            } while (!credits.compareAndSet(current, current - HEDGE_COST));
+            issued.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+// Lets concurrent callers for the same key share one in-flight Mono. The first
+// subscriber for a key triggers the load, later subscribers get the cached
+// result of that load until it terminates and the key is released.
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Counter leaderCalls;
+    private final Counter coalescedCalls;
+
+    public SingleFlight(String name, boolean enabled, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.leaderCalls = Counter.builder("singleflight.calls")
+                .tags("name", name, "coalesced", "false")
+                .register(registry);
+        this.coalescedCalls = Counter.builder("singleflight.calls")
+                .tags("name", name, "coalesced", "true")
+                .register(registry);
+        registry.gaugeMapSize("singleflight.in.flight", Tags.of("name", name), inFlight);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        if (!enabled) {
+            return Mono.defer(loader);
+        }
+        return Mono.defer(() -> {
+            boolean[] leader = {false};
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return Mono.defer(loader)
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache();
+            });
+            (leader[0] ? leaderCalls : coalescedCalls).increment();
+            return shared;
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.microservices.composite.product;
+
+import com.example.microservices.composite.product.services.EventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventPublisherTests {
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final EventPublisher publisher = new EventPublisher(streamBridge, Schedulers.boundedElastic(),
+            new SimpleMeterRegistry(), true, 100, Duration.ofMillis(5));
+
+    @Test
+    void restartsTheBatchingPipelineAfterAnError() {
+        Message<String> message = MessageBuilder.withPayload("event").build();
+        when(streamBridge.send(anyString(), any())).thenThrow(new AssertionError("broken")).thenReturn(true);
+
+        StepVerifier.create(publisher.publish("products-out-0", message))
+                .expectError(AssertionError.class)
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(publisher.publish("products-out-0", message))
+                .verifyComplete();
+
+        verify(streamBridge, times(2)).send("products-out-0", message);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.microservices.composite.product;
+
+import com.example.util.health.HealthCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HealthCacheTests {
+    private final AtomicInteger checks = new AtomicInteger();
+    private final AtomicReference<Mono<Health>> response = new AtomicReference<>(Mono.just(Health.up().build()));
+
+    @Test
+    void servesTheHealthFromMemoryWithinTimeToLive() {
+        HealthCache cache = cache(Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        assertEquals(Status.UP, status(cache));
+        assertEquals(Status.UP, status(cache));
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    void servesTheStaleHealthWhileOneCheckRefreshesIt() {
+        HealthCache cache = cache(Duration.ZERO, Duration.ofMinutes(1));
+        assertEquals(Status.UP, status(cache));
+
+        response.set(Mono.never());
+        assertEquals(Status.UP, status(cache));
+        assertEquals(Status.UP, status(cache));
+        assertEquals(2, checks.get());
+    }
+
+    @Test
+    void reportsATargetThatTimesOutAsDown() {
+        response.set(Mono.never());
+        HealthCache cache = cache(Duration.ofMinutes(1), Duration.ofMillis(50));
+
+        assertEquals(Status.DOWN, status(cache));
+    }
+
+    @Test
+    void reportsAFailingTargetAsDown() {
+        response.set(Mono.error(new IllegalStateException("Connection refused")));
+        HealthCache cache = cache(Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        assertEquals(Status.DOWN, status(cache));
+    }
+
+    private HealthCache cache(Duration timeToLive, Duration timeout) {
+        return new HealthCache(Map.of("product", () -> {
+            checks.incrementAndGet();
+            return response.get();
+        }), timeToLive, timeout);
+    }
+
+    private static Status status(HealthCache cache) {
+        return cache.getHealth("product").block(Duration.ofSeconds(5)).getStatus();
+    }
+}
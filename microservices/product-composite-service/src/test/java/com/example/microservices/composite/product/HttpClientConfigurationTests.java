@@ -0,0 +1,80 @@
+package com.example.microservices.composite.product;
+
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpClientConfigurationTests {
+    private final ExchangeFilterFunction responseTimeouts = HttpClientConfiguration.responseTimeouts(
+            Map.of("review", Duration.ofSeconds(3)));
+
+    @Test
+    void setsTheResponseTimeoutOfTheRoute() {
+        HttpClientRequest nativeRequest = exchange("http://review/review?productId=1");
+
+        verify(nativeRequest).responseTimeout(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void keepsTheDefaultResponseTimeoutForOtherRoutes() {
+        HttpClientRequest nativeRequest = exchange("http://product/product/1");
+
+        verify(nativeRequest, never()).responseTimeout(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void acceptsResponseTimeoutsBelowTheTimeLimiter() {
+        HttpClientConfiguration.validateResponseTimeouts(Duration.ofMillis(1500),
+                Map.of("review", Duration.ofSeconds(1)), timeLimiterRegistry(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void rejectsResponseTimeoutsThatCanNeverFire() {
+        TimeLimiterRegistry timeLimiterRegistry = timeLimiterRegistry(Duration.ofSeconds(2));
+
+        assertThrows(IllegalArgumentException.class, () -> HttpClientConfiguration.validateResponseTimeouts(
+                Duration.ofSeconds(5), Map.of(), timeLimiterRegistry));
+        assertThrows(IllegalArgumentException.class, () -> HttpClientConfiguration.validateResponseTimeouts(
+                Duration.ofMillis(1500), Map.of("review", Duration.ofSeconds(3)), timeLimiterRegistry));
+    }
+
+    private static TimeLimiterRegistry timeLimiterRegistry(Duration timeout) {
+        return TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(timeout).build());
+    }
+
+    // Applies the request customizations the way the Reactor Netty connector does
+    private HttpClientRequest exchange(String url) {
+        AtomicReference<ClientRequest> sent = new AtomicReference<>();
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create(url)).build();
+        responseTimeouts.filter(request, filtered -> {
+            sent.set(filtered);
+            return Mono.just(mock(ClientResponse.class));
+        }).block();
+
+        HttpClientRequest nativeRequest = mock(HttpClientRequest.class);
+        ClientHttpRequest httpRequest = mock(ClientHttpRequest.class);
+        when(httpRequest.<Object>getNativeRequest()).thenReturn(nativeRequest);
+        if (sent.get().httpRequest() != null) {
+            sent.get().httpRequest().accept(httpRequest);
+        }
+        return nativeRequest;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.microservices.composite.product;
+
+import com.example.util.loadbalancer.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LatencyAwareLoadBalancerTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ServiceInstance fast = new DefaultServiceInstance("fast", "review", "fast", 8080, false);
+    private final ServiceInstance slow = new DefaultServiceInstance("slow", "review", "slow", 8080, false);
+    private final LatencyAwareLoadBalancer loadBalancer = loadBalancer(Duration.ofSeconds(10), Duration.ofSeconds(5));
+
+    @Test
+    void prefersTheInstanceWithLowerLatency() {
+        complete(fast, 5);
+        complete(slow, 500);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("fast", loadBalancer.choose(request()).block().getServer().getInstanceId());
+        }
+        assertEquals(20.0, registry.get("loadbalancer.selections")
+                .tag("service", "review").tag("instance", "fast:8080").counter().count());
+    }
+
+    @Test
+    void avoidsTheInstanceWithOutstandingRequests() {
+        complete(fast, 5);
+        complete(slow, 5);
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.onStartRequest(request(), new DefaultResponse(fast));
+        }
+
+        assertEquals("slow", loadBalancer.choose(request()).block().getServer().getInstanceId());
+    }
+
+    @Test
+    void cancelledRequestsStopCountingAsOutstanding() throws InterruptedException {
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(Duration.ofSeconds(10), Duration.ofMillis(50));
+        complete(loadBalancer, fast, 5, CompletionContext.Status.SUCCESS);
+        complete(loadBalancer, slow, 10, CompletionContext.Status.SUCCESS);
+        // Cancelled requests get no onComplete
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.onStartRequest(request(), new DefaultResponse(fast));
+        }
+        assertEquals("slow", loadBalancer.choose(request()).block().getServer().getInstanceId());
+
+        Thread.sleep(100);
+
+        assertEquals("fast", loadBalancer.choose(request()).block().getServer().getInstanceId());
+    }
+
+    @Test
+    void penalizesFailedRequests() {
+        // The fast instance fails fast
+        complete(fast, 1, CompletionContext.Status.FAILED);
+        complete(slow, 50, CompletionContext.Status.SUCCESS);
+
+        assertEquals("slow", loadBalancer.choose(request()).block().getServer().getInstanceId());
+    }
+
+    @Test
+    void idleInstanceRecovers() throws InterruptedException {
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(Duration.ofMillis(50), Duration.ofSeconds(5));
+        complete(loadBalancer, fast, 5, CompletionContext.Status.SUCCESS);
+        complete(loadBalancer, slow, 500, CompletionContext.Status.SUCCESS);
+        assertEquals("fast", loadBalancer.choose(request()).block().getServer().getInstanceId());
+
+        // The slow instance gets no requests, its EWMA decays meanwhile
+        Thread.sleep(400);
+        complete(loadBalancer, fast, 5, CompletionContext.Status.SUCCESS);
+
+        assertEquals("slow", loadBalancer.choose(request()).block().getServer().getInstanceId());
+    }
+
+    private void complete(ServiceInstance instance, long latencyMillis) {
+        complete(loadBalancer, instance, latencyMillis, CompletionContext.Status.SUCCESS);
+    }
+
+    private void complete(ServiceInstance instance, long latencyMillis, CompletionContext.Status status) {
+        complete(loadBalancer, instance, latencyMillis, status);
+    }
+
+    private static void complete(LatencyAwareLoadBalancer loadBalancer, ServiceInstance instance,
+                                 long latencyMillis, CompletionContext.Status status) {
+        Request<Object> request = request();
+        Response<ServiceInstance> response = new DefaultResponse(instance);
+        loadBalancer.onStartRequest(request, response);
+        ((TimedRequestContext) request.getContext()).setRequestStartTime(
+                System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        loadBalancer.onComplete(new CompletionContext<>(status, request, response));
+    }
+
+    private LatencyAwareLoadBalancer loadBalancer(Duration decay, Duration outstandingTimeout) {
+        return new LatencyAwareLoadBalancer(supplierProvider(List.of(fast, slow)), "review",
+                decay, outstandingTimeout, Duration.ofSeconds(1), registry);
+    }
+
+    private static Request<Object> request() {
+        return new DefaultRequest<>(new TimedContext());
+    }
+
+    private static ObjectProvider<ServiceInstanceListSupplier> supplierProvider(
+            List<ServiceInstance> instances) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("supplier", new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "review";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances);
+            }
+        });
+        return beanFactory.getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+
+    private static class TimedContext implements TimedRequestContext {
+        private long requestStartTime;
+
+        @Override
+        public long getRequestStartTime() {
+            return requestStartTime;
+        }
+
+        @Override
+        public void setRequestStartTime(long requestStartTime) {
+            this.requestStartTime = requestStartTime;
+        }
+    }
+}
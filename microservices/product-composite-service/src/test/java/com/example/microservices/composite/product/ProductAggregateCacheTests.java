@@ -0,0 +1,61 @@
+package com.example.microservices.composite.product;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.example.microservices.composite.product.services.ProductAggregateCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductAggregateCacheTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProductAggregateCache cache =
+            new ProductAggregateCache(true, 100, Duration.ofMinutes(1), Duration.ofMillis(100), registry);
+
+    @Test
+    void putAndGet() {
+        ProductAggregate aggregate = new ProductAggregate(1, "name", 1, null, null, null);
+        assertNull(cache.get(1));
+        cache.put(1, aggregate, cache.stamp());
+        assertSame(aggregate, cache.get(1));
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "productAggregates")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void invalidate() {
+        cache.put(1, new ProductAggregate(1, "name", 1, null, null, null), cache.stamp());
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void stalePutIsDropped() {
+        // An event is published while the aggregate is being loaded
+        long stamp = cache.stamp();
+        cache.invalidate(1);
+        cache.put(1, new ProductAggregate(1, "name", 1, null, null, null), stamp);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void invalidationOfAnotherProductKeepsThePut() {
+        long stamp = cache.stamp();
+        cache.invalidate(2);
+        ProductAggregate aggregate = new ProductAggregate(1, "name", 1, null, null, null);
+        cache.put(1, aggregate, stamp);
+        assertSame(aggregate, cache.get(1));
+    }
+
+    @Test
+    void invalidatesAgainAfterTheConsumerLag() throws InterruptedException {
+        cache.invalidate(1);
+        // Loaded before the core service applied the event
+        cache.put(1, new ProductAggregate(1, "old", 1, null, null, null), cache.stamp());
+        assertNotNull(cache.get(1));
+        Thread.sleep(500);
+        assertNull(cache.get(1));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.microservices.composite.product;
+
+import com.example.api.core.product.Product;
+import com.example.api.core.review.Review;
+import com.example.api.exceptions.InvalidInputException;
+import com.example.api.exceptions.NotFoundException;
+import com.example.microservices.composite.product.services.DownstreamResilience;
+import com.example.microservices.composite.product.services.EventPublisher;
+import com.example.microservices.composite.product.services.LastKnownGoodCache;
+import com.example.microservices.composite.product.services.PartialResults;
+import com.example.microservices.composite.product.services.ProductAggregateCache;
+import com.example.microservices.composite.product.services.ProductCompositeIntegration;
+import com.example.microservices.composite.product.services.RequestHedger;
+import com.example.util.http.HttpErrorInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProductCompositeIntegrationMetricsTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EventPublisher eventPublisher = mock(EventPublisher.class);
+
+    // Every core service call fails with a 500
+    private final ProductCompositeIntegration integration = integration(
+            request -> Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build()),
+            CircuitBreakerRegistry.ofDefaults());
+
+    @Test
+    void countsPartialResponseFallbacks() {
+        assertTrue(integration.getRecommendations(1).collectList().block().isEmpty());
+        assertTrue(integration.getReviews(1).collectList().block().isEmpty());
+        assertTrue(integration.getReviews(2).collectList().block().isEmpty());
+
+        assertEquals(1.0, registry.get("composite.downstream.fallbacks")
+                .tag("service", "recommendation").tag("operation", "getRecommendations")
+                .counter().count());
+        assertEquals(2.0, registry.get("composite.downstream.fallbacks")
+                .tag("service", "review").tag("operation", "getReviews")
+                .counter().count());
+    }
+
+    @Test
+    void marksFallbacksAsPartialResults() {
+        AtomicBoolean partial = new AtomicBoolean();
+        integration.getReviews(1).contextWrite(PartialResults.track(partial)).collectList().block();
+
+        assertTrue(partial.get());
+    }
+
+    @Test
+    void servesLastKnownGoodWhenACallFails() {
+        AtomicBoolean failing = new AtomicBoolean();
+        ProductCompositeIntegration integration = integration(request -> Mono.just(failing.get()
+                ? ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build()
+                : ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("[{\"productId\":1,\"reviewId\":1,\"author\":\"a\"}]").build()),
+                CircuitBreakerRegistry.ofDefaults());
+
+        assertEquals(1, integration.getReviews(1).collectList().block().size());
+        failing.set(true);
+        List<Review> reviews = integration.getReviews(1).collectList().block();
+
+        assertEquals(1, reviews.size());
+        assertEquals("a", reviews.get(0).getAuthor());
+        assertEquals(1.0, registry.get("composite.downstream.fallbacks")
+                .tag("service", "review").tag("source", "lastKnownGood")
+                .counter().count());
+    }
+
+    @Test
+    void doesNotAppendLastKnownGoodToEmittedElements() {
+        AtomicBoolean failing = new AtomicBoolean();
+        ProductCompositeIntegration integration = integration(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(failing.get()
+                        ? Flux.concat(Flux.just(buffer("[{\"productId\":1,\"reviewId\":1,\"author\":\"b\"},")),
+                                Flux.error(new IllegalStateException("Connection reset")))
+                        : Flux.just(buffer("[{\"productId\":1,\"reviewId\":1,\"author\":\"a\"}]")))
+                .build()), CircuitBreakerRegistry.ofDefaults());
+
+        assertEquals(1, integration.getReviews(1).collectList().block().size());
+        failing.set(true);
+        List<Review> reviews = integration.getReviews(1).collectList().block();
+
+        assertEquals(1, reviews.size());
+        assertEquals("b", reviews.get(0).getAuthor());
+        assertEquals(1.0, registry.get("composite.downstream.fallbacks")
+                .tag("service", "review").tag("source", "empty")
+                .counter().count());
+    }
+
+    @Test
+    void openCircuitFailsFast() {
+        AtomicInteger calls = new AtomicInteger();
+        ProductCompositeIntegration integration = integration(request -> {
+            calls.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        }, CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .build()));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(integration.getRecommendations(1).collectList().block().isEmpty());
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(5.0, registry.get("composite.downstream.fallbacks")
+                .tag("service", "recommendation").tag("source", "empty")
+                .counter().count());
+    }
+
+    @Test
+    void decodesSmileErrorBodies() {
+        ProductCompositeIntegration integration = integration(request -> {
+            HttpStatus status = request.url().getPath().endsWith("/13")
+                    ? HttpStatus.NOT_FOUND : HttpStatus.UNPROCESSABLE_ENTITY;
+            return Mono.just(ClientResponse.create(status)
+                    .header(HttpHeaders.CONTENT_TYPE, "application/x-jackson-smile")
+                    .body(Flux.just(new DefaultDataBufferFactory().wrap(smileErrorBody(status))))
+                    .build());
+        }, CircuitBreakerRegistry.ofDefaults());
+
+        NotFoundException notFound = assertThrows(NotFoundException.class,
+                () -> integration.getProduct(13).block());
+        assertEquals("error: " + HttpStatus.NOT_FOUND.value(), notFound.getMessage());
+        InvalidInputException invalid = assertThrows(InvalidInputException.class,
+                () -> integration.getProduct(-1).block());
+        assertEquals("error: " + HttpStatus.UNPROCESSABLE_ENTITY.value(), invalid.getMessage());
+    }
+
+    @Test
+    void timesPublishedEvents() {
+        when(eventPublisher.publish(anyString(), any())).thenReturn(Mono.empty());
+        integration.createProduct(new Product(1, "name", 1, null)).block();
+
+        assertEquals(1, registry.get("composite.events.publish")
+                .tag("binding", "products-out-0").tag("outcome", "SUCCESS")
+                .timer().count());
+    }
+
+    private static DataBuffer buffer(String json) {
+        return new DefaultDataBufferFactory().wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] smileErrorBody(HttpStatus status) {
+        try {
+            return Jackson2ObjectMapperBuilder.smile().build()
+                    .writeValueAsBytes(new HttpErrorInfo(status, "/product", "error: " + status.value()));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private ProductCompositeIntegration integration(ExchangeFunction exchangeFunction,
+                                                    CircuitBreakerRegistry circuitBreakerRegistry) {
+        return new ProductCompositeIntegration(
+                WebClient.builder().exchangeFunction(exchangeFunction),
+                new ObjectMapper(),
+                eventPublisher,
+                new ProductAggregateCache(true, 100, Duration.ofMinutes(1), Duration.ZERO, registry),
+                new RequestHedger(false, 0.95, Duration.ofMillis(10), 0.05, registry),
+                new DownstreamResilience(circuitBreakerRegistry,
+                        TimeLimiterRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()),
+                new LastKnownGoodCache(true, 100, Duration.ofMinutes(1), registry),
+                registry);
+    }
+}
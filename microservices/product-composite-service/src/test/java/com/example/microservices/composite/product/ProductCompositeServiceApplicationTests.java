@@ -1,12 +1,17 @@
 package com.example.microservices.composite.product;
 
+import com.example.api.composite.product.ProductAggregateItem;
 import com.example.api.core.product.Product;
 import com.example.api.core.recommendation.Recommendation;
 import com.example.api.core.review.Review;
 import com.example.api.exceptions.InvalidInputException;
 import com.example.api.exceptions.NotFoundException;
+import com.example.microservices.composite.product.services.PartialResults;
 import com.example.microservices.composite.product.services.ProductCompositeIntegration;
 import org.junit.jupiter.api.BeforeEach;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +24,10 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
 		properties = {"eureka.client.enabled=false"})
@@ -26,6 +35,9 @@ class ProductCompositeServiceApplicationTests {
 	private static final int PRODUCT_ID_OK = 1;
 	private static final int PRODUCT_ID_NOT_FOUND = 2;
 	private static final int PRODUCT_ID_INVALID = 3;
+	private static final int PRODUCT_ID_BATCH_1 = 4;
+	private static final int PRODUCT_ID_BATCH_2 = 5;
+	private static final int PRODUCT_ID_PARTIAL = 6;
 
 	@MockBean
 	private ProductCompositeIntegration compositeIntegration;
@@ -48,6 +60,24 @@ class ProductCompositeServiceApplicationTests {
 				.thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
 		when(compositeIntegration.getProduct(PRODUCT_ID_INVALID))
 				.thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
+		when(compositeIntegration.getProducts(anyList()))
+				.thenReturn(Flux.just(
+						new Product(PRODUCT_ID_BATCH_1, "name", 1, "mock-address"),
+						new Product(PRODUCT_ID_BATCH_2, "name", 1, "mock-address")));
+		when(compositeIntegration.getRecommendationsForProducts(anyList()))
+				.thenReturn(Flux.just(new Recommendation(
+						PRODUCT_ID_BATCH_1, 1, "author", 1, "content", "mock address")));
+		when(compositeIntegration.getReviewsForProducts(anyList()))
+				.thenReturn(Flux.just(
+						new Review(PRODUCT_ID_BATCH_2, 1, "author", "subject", "content", "mock address"),
+						new Review(PRODUCT_ID_BATCH_2, 2, "author", "subject", "content", "mock address")));
+		when(compositeIntegration.getRecommendationsPage(PRODUCT_ID_OK, 1, 2))
+				.thenReturn(Flux.just(
+						new Recommendation(PRODUCT_ID_OK, 2, "author", 1, "content", "mock address"),
+						new Recommendation(PRODUCT_ID_OK, 3, "author", 1, "content", "mock address")));
+		when(compositeIntegration.getReviewsPage(PRODUCT_ID_OK, 0, 20))
+				.thenReturn(Flux.just(
+						new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
 	}
 	@Autowired
 	private WebTestClient client;
@@ -64,6 +94,48 @@ class ProductCompositeServiceApplicationTests {
 				.jsonPath("$.reviews.length()").isEqualTo(1);
 	}
 
+	@Test
+	void getProductNotModified() {
+		String eTag = client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(String.class)
+				.getResponseHeaders().getETag();
+		assertNotNull(eTag);
+
+		client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK)
+				.accept(MediaType.APPLICATION_JSON)
+				.ifNoneMatch(eTag)
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectHeader().valueEquals("ETag", eTag)
+				.expectBody().isEmpty();
+
+		getAndVerifyProduct(PRODUCT_ID_OK, HttpStatus.OK)
+				.jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK);
+	}
+
+	@Test
+	void getProductNotCachedWhenACoreServiceFails() {
+		when(compositeIntegration.getProduct(PRODUCT_ID_PARTIAL))
+				.thenReturn(Mono.just(new Product(PRODUCT_ID_PARTIAL, "name", 1, "mock-address")));
+		// The first call fails and gets the fallback, the second one succeeds
+		when(compositeIntegration.getRecommendations(PRODUCT_ID_PARTIAL))
+				.thenReturn(PartialResults.mark(Flux.empty()),
+						Flux.just(new Recommendation(PRODUCT_ID_PARTIAL, 1, "author", 1, "content", "mock address")));
+		when(compositeIntegration.getReviews(PRODUCT_ID_PARTIAL)).thenReturn(Flux.empty());
+
+		getAndVerifyProduct(PRODUCT_ID_PARTIAL, HttpStatus.OK)
+				.jsonPath("$.recommendations.length()").isEqualTo(0);
+		getAndVerifyProduct(PRODUCT_ID_PARTIAL, HttpStatus.OK)
+				.jsonPath("$.recommendations.length()").isEqualTo(1);
+
+		verify(compositeIntegration, times(2)).getProduct(PRODUCT_ID_PARTIAL);
+	}
+
 	@Test
 	void getProductNotFound() {
 		getAndVerifyProduct(PRODUCT_ID_NOT_FOUND, HttpStatus.NOT_FOUND)
@@ -80,11 +152,83 @@ class ProductCompositeServiceApplicationTests {
 				.jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
 	}
 
+	@Test
+	void getProductStream() {
+		List<ProductAggregateItem> items = client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.OK)
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(ProductAggregateItem.class)
+				.getResponseBody()
+				.collectList()
+				.block();
+
+		assertEquals(3, items.size());
+		assertEquals(ProductAggregateItem.Type.PRODUCT, items.get(0).getType());
+		assertEquals("name", items.get(0).getName());
+		assertEquals(2, items.stream().filter(item -> item.getType() != ProductAggregateItem.Type.PRODUCT).count());
+	}
+
+	@Test
+	void getProductStreamNotFound() {
+		client.get()
+				.uri("/product-composite/" + PRODUCT_ID_NOT_FOUND + "/stream")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+	@Test
+	void getProductsByIds() {
+		client.get()
+				.uri("/product-composite?ids=" + PRODUCT_ID_BATCH_2 + "," + PRODUCT_ID_BATCH_1)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.OK)
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_BATCH_2)
+				.jsonPath("$[0].recommendations.length()").isEqualTo(0)
+				.jsonPath("$[0].reviews.length()").isEqualTo(2)
+				.jsonPath("$[1].productId").isEqualTo(PRODUCT_ID_BATCH_1)
+				.jsonPath("$[1].recommendations.length()").isEqualTo(1)
+				.jsonPath("$[1].reviews.length()").isEqualTo(0);
+	}
+
+	@Test
+	void getProductRecommendationsPage() {
+		getAndVerify("/product-composite/" + PRODUCT_ID_OK + "/recommendations?after=1&size=2", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].recommendationId").isEqualTo(2)
+				.jsonPath("$[1].recommendationId").isEqualTo(3);
+	}
+
+	@Test
+	void getProductReviewsDefaultPageSize() {
+		getAndVerify("/product-composite/" + PRODUCT_ID_OK + "/reviews", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(1)
+				.jsonPath("$[0].reviewId").isEqualTo(1);
+	}
+
+	@Test
+	void getProductReviewsInvalidPageSize() {
+		getAndVerify("/product-composite/" + PRODUCT_ID_OK + "/reviews?size=101", HttpStatus.UNPROCESSABLE_ENTITY)
+				.jsonPath("$.message").isEqualTo("Invalid page size: 101, must be between 1 and 100");
+	}
+
 	private WebTestClient.BodyContentSpec getAndVerifyProduct(
 			int productId, HttpStatus expectedStatus
+	) {
+		return getAndVerify("/product-composite/" + productId, expectedStatus);
+	}
+
+	private WebTestClient.BodyContentSpec getAndVerify(
+			String uri, HttpStatus expectedStatus
 	) {
 		return client.get()
-				.uri("/product-composite/" + productId)
+				.uri(uri)
 				.accept(MediaType.APPLICATION_JSON)
 				.exchange()
 				.expectStatus().isEqualTo(expectedStatus)
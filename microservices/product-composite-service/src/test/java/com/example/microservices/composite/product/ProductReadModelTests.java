@@ -0,0 +1,92 @@
+package com.example.microservices.composite.product;
+
+import com.example.api.composite.product.ProductAggregate;
+import com.example.api.core.product.Product;
+import com.example.api.core.recommendation.Recommendation;
+import com.example.api.core.review.Review;
+import com.example.api.event.Event;
+import com.example.microservices.composite.product.services.ProductReadModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ProductReadModelTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProductReadModel readModel = new ProductReadModel(true, Duration.ZERO, registry);
+
+    @Test
+    void foldsEventsIntoAnAggregate() {
+        // Recommendations and reviews may arrive before their product
+        readModel.applyReview(new Event<>(Event.Type.CREATE, 1, new Review(1, 2, "a", "s", "c", null)));
+        assertNull(readModel.get(1, "SA"));
+
+        readModel.applyProduct(new Event<>(Event.Type.CREATE, 1, new Product(1, "name", 1, null)));
+        readModel.applyRecommendation(new Event<>(Event.Type.CREATE, 1, new Recommendation(1, 1, "a", 1, "c", null)));
+        readModel.applyReview(new Event<>(Event.Type.CREATE, 1, new Review(1, 1, "a", "s", "c", null)));
+        // A redelivered event doesn't add a second review
+        readModel.applyReview(new Event<>(Event.Type.CREATE, 1, new Review(1, 1, "a", "s", "c", null)));
+
+        ProductAggregate aggregate = readModel.get(1, "SA");
+        assertEquals("name", aggregate.getName());
+        assertEquals(1, aggregate.getRecommendations().size());
+        assertEquals(2, aggregate.getReviews().size());
+        assertEquals(1, aggregate.getReviews().get(0).getReviewId());
+        assertEquals(3, registry.get("composite.readmodel.staleness").tag("destination", "reviews")
+                .timer().count());
+    }
+
+    @Test
+    void deletedProductsAreNotServed() {
+        readModel.applyProduct(new Event<>(Event.Type.CREATE, 1, new Product(1, "name", 1, null)));
+        readModel.applyReview(new Event<>(Event.Type.CREATE, 1, new Review(1, 1, "a", "s", "c", null)));
+
+        readModel.applyReview(new Event<>(Event.Type.DELETE, 1, null));
+        assertEquals(0, readModel.get(1, "SA").getReviews().size());
+
+        readModel.applyProduct(new Event<>(Event.Type.DELETE, 1, null));
+        assertNull(readModel.get(1, "SA"));
+        assertEquals(0.0, registry.get("composite.readmodel.products").gauge().value());
+    }
+
+    @Test
+    void duplicateAndInvalidEventsAreIgnored() {
+        readModel.applyProduct(new Event<>(Event.Type.CREATE, 1, new Product(1, "name", 1, null)));
+        readModel.applyRecommendation(new Event<>(Event.Type.CREATE, 1, new Recommendation(1, 1, "a", 1, "c", null)));
+        // The core services reject these as duplicate keys
+        readModel.applyProduct(new Event<>(Event.Type.CREATE, 1, new Product(1, "other", 2, null)));
+        readModel.applyRecommendation(new Event<>(Event.Type.CREATE, 1, new Recommendation(1, 1, "b", 2, "d", null)));
+        // and dead letter this one
+        readModel.applyProduct(new Event<>(Event.Type.CREATE, -1, new Product(-1, "invalid", 1, null)));
+
+        ProductAggregate aggregate = readModel.get(1, "SA");
+        assertEquals("name", aggregate.getName());
+        assertEquals("a", aggregate.getRecommendations().get(0).getAuthor());
+        assertNull(readModel.get(-1, "SA"));
+    }
+
+    @Test
+    void recentlyChangedEntriesAreNotServed() throws InterruptedException {
+        ProductReadModel settling = new ProductReadModel(true, Duration.ofMillis(100), registry);
+        settling.applyProduct(new Event<>(Event.Type.CREATE, 1, new Product(1, "name", 1, null)));
+        assertNull(settling.get(1, "SA"));
+
+        Thread.sleep(150);
+        assertEquals("name", settling.get(1, "SA").getName());
+
+        // The reviews of the product may still be in flight
+        settling.applyReview(new Event<>(Event.Type.CREATE, 1, new Review(1, 1, "a", "s", "c", null)));
+        assertNull(settling.get(1, "SA"));
+    }
+
+    @Test
+    void disabledReadModelServesNothing() {
+        ProductReadModel disabled = new ProductReadModel(false, Duration.ZERO, registry);
+        disabled.applyProduct(new Event<>(Event.Type.CREATE, 1, new Product(1, "name", 1, null)));
+
+        assertNull(disabled.get(1, "SA"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.microservices.composite.product;
+
+import com.example.microservices.composite.product.services.RequestHedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RequestHedgerTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void slowAttemptIsHedged() {
+        RequestHedger hedger = new RequestHedger(true, 0.95, Duration.ofMillis(10), 0.05, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // The first attempt never answers, the hedge answers at once
+        String value = hedger.hedge("test", () -> attempts.incrementAndGet() == 1
+                ? Mono.<String>never() : Mono.just("hedge")).block(Duration.ofSeconds(5));
+
+        assertEquals("hedge", value);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, registry.get("composite.hedges.issued").tag("service", "test").counter().count());
+        assertEquals(1.0, registry.get("composite.hedges.won").tag("service", "test").counter().count());
+    }
+
+    @Test
+    void failedHedgeDoesNotWin() {
+        RequestHedger hedger = new RequestHedger(true, 0.95, Duration.ofMillis(10), 0.05, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // The first attempt answers after the hedge has failed
+        String value = hedger.hedge("test", () -> attempts.incrementAndGet() == 1
+                ? Mono.just("first").delayElement(Duration.ofMillis(200))
+                : Mono.<String>error(new IllegalStateException("connection refused"))).block(Duration.ofSeconds(5));
+
+        assertEquals("first", value);
+        assertEquals(2, attempts.get());
+        assertEquals(0.0, registry.get("composite.hedges.won").tag("service", "test").counter().count());
+    }
+
+    @Test
+    void failsWhenBothAttemptsFail() {
+        RequestHedger hedger = new RequestHedger(true, 0.95, Duration.ofMillis(10), 0.05, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Mono<String> call = hedger.hedge("test", () -> attempts.incrementAndGet() == 1
+                ? Mono.<String>error(new IllegalStateException("first")).delaySubscription(Duration.ofMillis(200))
+                : Mono.<String>error(new IllegalStateException("hedge")));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> call.block(Duration.ofSeconds(5)));
+        assertEquals("first", error.getMessage());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void fastAttemptIsNotHedged() {
+        RequestHedger hedger = new RequestHedger(true, 0.95, Duration.ofSeconds(1), 0.05, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String value = hedger.hedge("test", () -> {
+            attempts.incrementAndGet();
+            return Mono.just("first");
+        }).block(Duration.ofSeconds(5));
+
+        assertEquals("first", value);
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, registry.get("composite.hedges.issued").tag("service", "test").counter().count());
+    }
+
+    @Test
+    void hedgesAreCappedByTheBudget() {
+        RequestHedger hedger = new RequestHedger(true, 0.95, Duration.ofMillis(1), 0.0, registry);
+
+        // The budget starts with 10 hedges and gets no credits with maxRate 0.0
+        for (int i = 0; i < 12; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            hedger.hedge("test", () -> attempts.incrementAndGet() == 1
+                    ? Mono.just("first").delayElement(Duration.ofMillis(50)) : Mono.<String>never())
+                    .block(Duration.ofSeconds(5));
+        }
+
+        assertEquals(10.0, registry.get("composite.hedges.issued").tag("service", "test").counter().count());
+        assertEquals(2.0, registry.get("composite.hedges.throttled").tag("service", "test").counter().count());
+        assertEquals(0.0, registry.get("composite.hedges.won").tag("service", "test").counter().count());
+    }
+
+    @Test
+    void disabledHedgerCallsOnce() {
+        RequestHedger hedger = new RequestHedger(false, 0.95, Duration.ofMillis(1), 1.0, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        hedger.hedge("test", () -> Mono.just(attempts.incrementAndGet())).block();
+
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.microservices.composite.product;
+
+import com.example.microservices.composite.product.services.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SingleFlightTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<Integer, String> singleFlight =
+            new SingleFlight<>("test", true, registry);
+
+    @Test
+    void concurrentCallsShareOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+
+        Mono<String> first = singleFlight.execute(1, () -> {
+            loads.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<String> second = singleFlight.execute(1, () -> {
+            loads.incrementAndGet();
+            return result.asMono();
+        });
+
+        StringBuilder values = new StringBuilder();
+        first.subscribe(values::append);
+        second.subscribe(values::append);
+        result.tryEmitValue("a");
+
+        assertEquals("aa", values.toString());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("singleflight.calls").tag("coalesced", "true").counter().count());
+    }
+
+    @Test
+    void keyIsReleasedWhenTheLoadCompletes() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute(1, () -> Mono.fromCallable(() -> "v" + loads.incrementAndGet())).block();
+        String value = singleFlight.execute(1, () -> Mono.fromCallable(() -> "v" + loads.incrementAndGet())).block();
+
+        assertEquals("v2", value);
+        assertEquals(0.0, registry.get("singleflight.in.flight").gauge().value());
+    }
+}
@@ -19,7 +19,7 @@ import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 
 @SpringBootApplication
-@ComponentScan("com.example")
+@ComponentScan({"com.example.microservices.core.product", "com.example.util"})
 public class ProductServiceApplication {
 	private static final Logger LOG =
 			LoggerFactory.getLogger(ProductServiceApplication.class);
@@ -0,0 +1,13 @@
+package com.example.microservices.core.product.services;
+
+import com.example.api.core.product.Product;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface BulkProductService {
+    Flux<Product> createProducts(List<Product> bodies);
+
+    Mono<Void> deleteProducts(List<Integer> productIds);
+}
@@ -4,47 +4,93 @@ import com.example.api.core.product.Product;
 import com.example.api.core.product.ProductService;
 import com.example.api.event.Event;
 import com.example.api.exceptions.EventProcessingException;
+import com.example.util.messaging.BatchEventProcessor;
+import com.example.util.messaging.ReactiveEventProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Configuration
 public class MessageProcessorConfig {
     private final static Logger LOG
             = LoggerFactory.getLogger(MessageProcessorConfig.class);
     private final ProductService productService;
+    private final BulkProductService bulkProductService;
+    // Looked up on use, the persistence test slices have no StreamBridge
+    private final ObjectProvider<StreamBridge> streamBridge;
+    private final int concurrency;
 
     @Autowired
-    public MessageProcessorConfig(ProductService productService) {
+    public MessageProcessorConfig(ProductService productService,
+                                  BulkProductService bulkProductService,
+                                  ObjectProvider<StreamBridge> streamBridge,
+                                  @Value("${app.messageProcessor.concurrency:16}") int concurrency) {
         this.productService=productService;
+        this.bulkProductService=bulkProductService;
+        this.streamBridge=streamBridge;
+        this.concurrency=concurrency;
     }
 
     @Bean
     public Consumer<Event<Integer, Product>> messageProcessor() {
         return event -> {
             LOG.info("Process message created at {}...", event.getEventCreatedAt());
-            switch (event.getEventType()) {
-                case CREATE:
-                    Product product = event.getData();
-                    LOG.info("Create product with ID: {}", product.getProductId());
-                    productService.createProduct(product).block();
-                    break;
-                case DELETE:
-                    int productId = event.getKey();
-                    LOG.info("Delete product with productId: {}", productId);
-                    productService.deleteProduct(productId).block();
-                    break;
-                default:
-                    String errorMessage = "Incorrect event type: " +
-                            event.getEventType() +
-                            ", expected a CREATE or DELETE event";
-                    throw new EventProcessingException(errorMessage);
-            }
+            processEvent(event).block();
             LOG.info("Message processing done!");
         };
     }
+
+    // Used instead of messageProcessor in the streaming_batch profile
+    @Bean
+    public Consumer<List<Event<Integer, Product>>> batchMessageProcessor() {
+        BatchEventProcessor<Integer, Product> processor = new BatchEventProcessor<>(
+                products -> bulkProductService.createProducts(products).then(),
+                productIds -> bulkProductService.deleteProducts(productIds),
+                messageProcessor(),
+                this::sendToDeadLetters);
+        return processor::process;
+    }
+
+    // Used instead of messageProcessor in the streaming_reactive profile
+    @Bean
+    public Function<Flux<Message<Event<Integer, Product>>>, Mono<Void>> reactiveMessageProcessor() {
+        ReactiveEventProcessor<Integer, Product> processor = new ReactiveEventProcessor<>(
+                concurrency, this::processEvent, this::sendToDeadLetters);
+        return messages -> processor.process(messages.map(Message::getPayload));
+    }
+
+    // The reactive processor subscribes to this, messageProcessor blocks on it
+    private Mono<Void> processEvent(Event<Integer, Product> event) {
+        switch (event.getEventType()) {
+            case CREATE:
+                LOG.info("Create product with ID: {}", event.getData().getProductId());
+                return productService.createProduct(event.getData()).then();
+            case DELETE:
+                LOG.info("Delete product with productId: {}", event.getKey());
+                return productService.deleteProduct(event.getKey());
+            default:
+                return Mono.error(new EventProcessingException("Incorrect event type: " +
+                        event.getEventType() + ", expected a CREATE or DELETE event"));
+        }
+    }
+
+    private void sendToDeadLetters(Event<Integer, Product> event, RuntimeException ex) {
+        streamBridge.getObject().send("deadLetters-out-0", MessageBuilder.withPayload(event)
+                .setHeader("x-exception-message", ex.getMessage())
+                .setHeader("x-exception-fqcn", ex.getClass().getName())
+                .build());
+    }
 }
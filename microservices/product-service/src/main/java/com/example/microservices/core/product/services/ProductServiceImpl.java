@@ -6,30 +6,42 @@ import com.example.api.exceptions.InvalidInputException;
 import com.example.api.exceptions.NotFoundException;
 import com.example.microservices.core.product.persistence.ProductEntity;
 import com.example.microservices.core.product.persistence.ProductRepository;
+import com.example.util.http.ETagUtil;
 import com.example.util.http.ServiceUtil;
+import com.example.util.tracing.SignalTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.logging.Level;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @RestController
-public class ProductServiceImpl implements ProductService {
+public class ProductServiceImpl implements ProductService, BulkProductService {
     private static final Logger LOG = LoggerFactory.getLogger(ProductServiceImpl.class);
     private final ServiceUtil serviceUtil;
+    private final SignalTracer tracer;
+    private final ETagUtil eTagUtil;
     private final ProductRepository repository;
     private final ProductMapper mapper;
 
     @Autowired
     public ProductServiceImpl(ProductRepository repository,
                               ProductMapper mapper,
-                              ServiceUtil serviceUtil) {
+                              ServiceUtil serviceUtil,
+                              SignalTracer tracer,
+                              ETagUtil eTagUtil) {
         this.repository = repository;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.tracer = tracer;
+        this.eTagUtil = eTagUtil;
     }
 
     @Override
@@ -44,7 +56,24 @@ public class ProductServiceImpl implements ProductService {
         return repository.findByProductId(productId)
                 .switchIfEmpty(Mono.error(
                         new NotFoundException("No product found for productId: " + productId)))
-                .log(LOG.getName(), Level.FINE)
+                .transform(tracer.mono("getProduct"))
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress)
+                .transform(eTagUtil.mono(ProductServiceImpl::eTag));
+    }
+
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        LOG.info("Will get product info for {} ids", productIds.size());
+
+        return repository.findByProductIdIn(productIds)
+                .transform(tracer.flux("getProducts"))
                 .map(mapper::entityToApi)
                 .map(this::setServiceAddress);
     }
@@ -53,13 +82,34 @@ public class ProductServiceImpl implements ProductService {
     public Mono<Product> createProduct(Product body) {
         ProductEntity entity = mapper.apiToEntity(body);
         return repository.save(entity)
-                .log(LOG.getName(), Level.FINE)
+                .transform(tracer.mono("createProduct"))
                 .onErrorMap(DuplicateKeyException.class,
                         ex -> new InvalidInputException("Duplicate key, Product Id: " +
                                 body.getProductId()))
                 .map(mapper::entityToApi);
     }
 
+    @Override
+    public Flux<Product> createProducts(List<Product> bodies) {
+        List<Integer> productIds = bodies.stream()
+                .map(Product::getProductId).collect(Collectors.toList());
+        InvalidInputException duplicateError = new InvalidInputException(
+                "Duplicate key in batch of " + bodies.size() + " products");
+        // A bulk insert isn't atomic in MongoDB, look for duplicates up front so a
+        // failing batch doesn't leave part of its products behind
+        return repository.findByProductIdIn(productIds).hasElements()
+                .flatMapMany(exists -> {
+                    if (exists || new HashSet<>(productIds).size() < productIds.size()) {
+                        return Flux.error(duplicateError);
+                    }
+                    return repository.saveAll(bodies.stream()
+                            .map(mapper::apiToEntity).collect(Collectors.toList()));
+                })
+                .transform(tracer.flux("createProducts"))
+                .onErrorMap(DuplicateKeyException.class, ex -> duplicateError)
+                .map(mapper::entityToApi);
+    }
+
     @Override
     public Mono<Void> deleteProduct(int productId) {
         if (productId < 1) {
@@ -67,10 +117,29 @@ public class ProductServiceImpl implements ProductService {
         }
         LOG.debug("deleteProduct: tries to delete an entity with productId: {}",
                 productId);
-        return repository.findByProductId(productId).log(LOG.getName(),Level.FINE)
+        return repository.findByProductId(productId).transform(tracer.mono("deleteProduct"))
                 .map(repository::delete).flatMap(e -> e);
     }
 
+    @Override
+    public Mono<Void> deleteProducts(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+        LOG.debug("deleteProducts: tries to delete entities for {} productIds",
+                productIds.size());
+        return repository.deleteByProductIdIn(productIds).transform(tracer.mono("deleteProducts")).then();
+    }
+
+    // The version starts over when a product is deleted and created again,
+    // hashing the content as well tells the two apart
+    private static String eTag(Product product) {
+        return ETagUtil.weakETag(product.getProductId(), product.getVersion(),
+                Objects.hash(product.getName(), product.getWeight()));
+    }
+
     private Product setServiceAddress(Product e) {
         e.setServiceAddress(serviceUtil.getServiceAddress());
         return e;
@@ -0,0 +1,76 @@
+package com.example.microservices.core.product;
+
+import com.example.api.core.product.Product;
+import com.example.api.event.Event;
+import com.example.microservices.core.product.persistence.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compares messages/s of the blocking messageProcessor with reactiveMessageProcessor,
+// run with: ./gradlew :microservices:product-service:test -Dbenchmarks=true
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "eureka.client.enabled=false",
+        "spring.main.allow-bean-definition-overriding=true",
+        "spring.cloud.function.definition=messageProcessor;reactiveMessageProcessor",
+        "spring.cloud.stream.bindings.reactiveMessageProcessor-in-0.destination=reactiveProducts",
+        "logging.level.com.example=INFO"})
+@Import({TestChannelBinderConfiguration.class})
+class MessageProcessorBenchmarkTests extends MongoDbTestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageProcessorBenchmarkTests.class);
+
+    private static final int MESSAGES = Integer.getInteger("benchmarks.messages", 2000);
+
+    @Autowired
+    private InputDestination input;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    void blockingMessageProcessor() throws InterruptedException {
+        run("messageProcessor", "products");
+    }
+
+    @Test
+    void reactiveMessageProcessor() throws InterruptedException {
+        run("reactiveMessageProcessor", "reactiveProducts");
+    }
+
+    private void run(String processor, String destination) throws InterruptedException {
+        long start = System.nanoTime();
+        for (int productId = 1; productId <= MESSAGES; productId++) {
+            Product product = new Product(productId, "Name " + productId, productId, "SA");
+            input.send(MessageBuilder.withPayload(new Event<>(Event.Type.CREATE, productId, product))
+                    .setHeader("partitionKey", productId)
+                    .build(), destination);
+        }
+
+        // The reactive processor accepts messages before they are written, wait for the writes
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (repository.count().block() < MESSAGES && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        assertEquals(MESSAGES, repository.count().block());
+        LOG.info("{}: {} messages in {} s, {} messages/s", processor, MESSAGES,
+                String.format("%.2f", seconds), String.format("%.0f", MESSAGES / seconds));
+    }
+}
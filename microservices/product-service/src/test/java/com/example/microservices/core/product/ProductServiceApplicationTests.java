@@ -1,6 +1,10 @@
 package com.example.microservices.core.product;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static reactor.core.publisher.Mono.just;
 
 import com.example.api.core.product.Product;
@@ -13,10 +17,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 
@@ -28,6 +35,13 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
     @Qualifier("messageProcessor")
     private Consumer<Event<Integer, Product>> messageProcessor;
 
+    @Autowired
+    @Qualifier("batchMessageProcessor")
+    private Consumer<List<Event<Integer, Product>>> batchMessageProcessor;
+
+    @MockBean
+    private StreamBridge streamBridge;
+
     @Autowired
     private WebTestClient client;
 
@@ -51,6 +65,68 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
                 .jsonPath("$.productId").isEqualTo(productId);
     }
 
+    @Test
+    void getProductNotModified() {
+        int productId = 1;
+        sendCreateProductEvent(productId);
+
+        String eTag = client.get()
+                .uri("/product/" + productId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertNotNull(eTag);
+        assertTrue(eTag.startsWith("W/"));
+
+        client.get()
+                .uri("/product/" + productId)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        client.get()
+                .uri("/product/" + productId)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch("W/\"0\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", eTag);
+    }
+
+    @Test
+    void getProductAsSmile() {
+        int productId = 1;
+        sendCreateProductEvent(productId);
+
+        MediaType smile = MediaType.valueOf("application/x-jackson-smile");
+        client.get()
+                .uri("/product/" + productId)
+                .accept(smile)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(smile)
+                .expectBody(Product.class)
+                .value(product -> assertEquals(productId, product.getProductId()));
+
+        // A client that only accepts JSON still gets it
+        getAndVerifyProduct(productId, HttpStatus.OK)
+                .jsonPath("$.productId").isEqualTo(productId);
+    }
+
+    @Test
+    void getProductsByIds() {
+        sendCreateProductEvent(1);
+        sendCreateProductEvent(2);
+        sendCreateProductEvent(3);
+
+        getAndVerifyProduct("?productIds=1,3,4", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
     @Test
     void duplicateError() {
         int productId = 1;
@@ -77,6 +153,32 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
     }
 
 
+    @Test
+    void batchCreateAndDeleteProducts() {
+        batchMessageProcessor.accept(List.of(
+                createProductEvent(1),
+                createProductEvent(2),
+                createProductEvent(3),
+                deleteProductEvent(1),
+                deleteProductEvent(2)));
+
+        assertEquals(1, repository.count().block());
+        assertNotNull(repository.findByProductId(3).block());
+    }
+
+    @Test
+    void batchDeadLettersOnlyTheFailingEvent() {
+        sendCreateProductEvent(1);
+
+        batchMessageProcessor.accept(List.of(
+                createProductEvent(1),
+                createProductEvent(2),
+                createProductEvent(3)));
+
+        assertEquals(3, repository.count().block());
+        verify(streamBridge, times(1)).send(eq("deadLetters-out-0"), any());
+    }
+
     @Test
     void getProductInvalidParameterString() {
         getAndVerifyProduct("/no-integer", HttpStatus.BAD_REQUEST)
@@ -121,15 +223,20 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
     }
 
     private void sendCreateProductEvent(int productId) {
+        messageProcessor.accept(createProductEvent(productId));
+    }
+
+    private void sendDeleteProductEvent(int productId) {
+        messageProcessor.accept(deleteProductEvent(productId));
+    }
+
+    private Event<Integer, Product> createProductEvent(int productId) {
         Product product = new Product(productId, "Name " + productId,
                 productId, "SA");
-        Event<Integer, Product> event = new Event<>(Event.Type.CREATE, productId,
-                product);
-        messageProcessor.accept(event);
+        return new Event<>(Event.Type.CREATE, productId, product);
     }
 
-    private void sendDeleteProductEvent(int productId) {
-        Event<Integer, Product> event = new Event<>(Event.Type.DELETE, productId, null);
-        messageProcessor.accept(event);
+    private Event<Integer, Product> deleteProductEvent(int productId) {
+        return new Event<>(Event.Type.DELETE, productId, null);
     }
 }
@@ -0,0 +1,93 @@
+package com.example.microservices.core.product;
+
+import com.example.api.event.Event;
+import com.example.util.messaging.ReactiveEventProcessor;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static com.example.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveEventProcessorTests {
+    private final Queue<String> processed = new ConcurrentLinkedQueue<>();
+    private final Queue<String> deadLetters = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void keepsTheOrderPerKeyAndRunsKeysInParallel() {
+        // The first event of key 1 only completes once key 2 has been processed
+        Sinks.Empty<Void> key2Processed = Sinks.empty();
+        ReactiveEventProcessor<Integer, String> processor = new ReactiveEventProcessor<>(4, event -> {
+            Mono<Void> record = Mono.fromRunnable(() -> processed.add(event.getKey() + event.getData()));
+            if (event.getKey() == 2) {
+                return record.then(Mono.fromRunnable(key2Processed::tryEmitEmpty));
+            }
+            if (event.getData().equals("a")) {
+                return key2Processed.asMono().then(record);
+            }
+            return Mono.delay(Duration.ofMillis(event.getData().equals("b") ? 50 : 1)).then(record);
+        }, this::deadLetter);
+
+        StepVerifier.create(processor.process(Flux.just(
+                        new Event<>(CREATE, 1, "a"),
+                        new Event<>(CREATE, 1, "b"),
+                        new Event<>(CREATE, 2, "x"),
+                        new Event<>(CREATE, 1, "c"))))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(List.of("2x", "1a", "1b", "1c"), List.copyOf(processed));
+        assertTrue(deadLetters.isEmpty());
+    }
+
+    @Test
+    void deadLettersFailedEventsAndContinues() {
+        ReactiveEventProcessor<Integer, String> processor = new ReactiveEventProcessor<>(4, event -> {
+            if (event.getKey() == 2) {
+                throw new IllegalStateException("broken");
+            }
+            return Mono.fromRunnable(() -> processed.add(event.getKey() + event.getData()));
+        }, this::deadLetter);
+
+        StepVerifier.create(processor.process(Flux.just(
+                        new Event<>(CREATE, 1, "a"),
+                        new Event<>(CREATE, 2, "b"),
+                        new Event<>(CREATE, 3, "c"))))
+                .verifyComplete();
+
+        assertEquals(List.of("1a", "3c"), processed.stream().sorted().collect(Collectors.toList()));
+        assertEquals(List.of("2b: broken"), List.copyOf(deadLetters));
+    }
+
+    @Test
+    void failingDeadLetterHandlerKeepsTheSubscription() {
+        ReactiveEventProcessor<Integer, String> processor = new ReactiveEventProcessor<>(1, event -> {
+            if (event.getKey() == 1) {
+                return Mono.error(new IllegalStateException("broken"));
+            }
+            return Mono.fromRunnable(() -> processed.add(event.getKey() + event.getData()));
+        }, (event, ex) -> {
+            throw new IllegalStateException("dead letters unavailable");
+        });
+
+        StepVerifier.create(processor.process(Flux.just(
+                        new Event<>(CREATE, 1, "a"),
+                        new Event<>(CREATE, 2, "b"))))
+                .verifyComplete();
+
+        assertEquals(List.of("2b"), List.copyOf(processed));
+    }
+
+    private void deadLetter(Event<Integer, String> event, RuntimeException ex) {
+        deadLetters.add(event.getKey() + event.getData() + ": " + ex.getMessage());
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
-@ComponentScan("com.example")
+@ComponentScan({"com.example.microservices.core.recommendation", "com.example.util"})
 public class RecommendationServiceApplication {
 
 	public static void main(String[] args) {
@@ -1,8 +1,23 @@
 package com.example.microservices.core.recommendation.persistence;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
 
 public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String> {
     Flux<RecommendationEntity> findByProductId(int productId);
+
+    Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    // Keyset page, served by the unique (productId, recommendationId) index
+    Flux<RecommendationEntity> findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(
+            int productId, int afterRecommendationId, Pageable pageable);
+
+    // Derived deletes returning a count run as a single deleteMany
+    Mono<Long> deleteByProductId(int productId);
+
+    Mono<Long> deleteByProductIdIn(Collection<Integer> productIds);
 }
@@ -0,0 +1,13 @@
+package com.example.microservices.core.recommendation.services;
+
+import com.example.api.core.recommendation.Recommendation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface BulkRecommendationService {
+    Flux<Recommendation> createRecommendations(List<Recommendation> bodies);
+
+    Mono<Void> deleteRecommendations(List<Integer> productIds);
+}
@@ -1,15 +1,26 @@
 package com.example.microservices.core.recommendation.services;
 
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import com.example.api.core.recommendation.Recommendation;
 import com.example.api.core.recommendation.RecommendationService;
 import com.example.api.event.Event;
 import com.example.api.exceptions.EventProcessingException;
+import com.example.util.messaging.BatchEventProcessor;
+import com.example.util.messaging.ReactiveEventProcessor;
 
 @Configuration
 public class MessageProcessorConfig {
@@ -17,10 +28,21 @@ public class MessageProcessorConfig {
     private static final Logger LOG = LoggerFactory.getLogger(MessageProcessorConfig.class);
 
     private final RecommendationService recommendationService;
+    private final BulkRecommendationService bulkRecommendationService;
+    // Looked up on use, the persistence test slices have no StreamBridge
+    private final ObjectProvider<StreamBridge> streamBridge;
+    private final int concurrency;
 
     @Autowired
-    public MessageProcessorConfig(RecommendationService recommendationService) {
+    public MessageProcessorConfig(
+            RecommendationService recommendationService,
+            BulkRecommendationService bulkRecommendationService,
+            ObjectProvider<StreamBridge> streamBridge,
+            @Value("${app.messageProcessor.concurrency:16}") int concurrency) {
         this.recommendationService = recommendationService;
+        this.bulkRecommendationService = bulkRecommendationService;
+        this.streamBridge = streamBridge;
+        this.concurrency = concurrency;
     }
 
     @Bean
@@ -28,28 +50,49 @@ public class MessageProcessorConfig {
         return event -> {
 
             LOG.info("Process message created at {}...", event.getEventCreatedAt());
+            processEvent(event).block();
+            LOG.info("Message processing done!");
+        };
+    }
 
-            switch (event.getEventType()) {
-
-                case CREATE:
-                    Recommendation recommendation = event.getData();
-                    LOG.info("Create recommendation with ID: {}/{}", recommendation.getProductId(), recommendation.getRecommendationId());
-                    recommendationService.createRecommendation(recommendation).block();
-                    break;
+    // Used instead of messageProcessor in the streaming_batch profile
+    @Bean
+    public Consumer<List<Event<Integer, Recommendation>>> batchMessageProcessor() {
+        BatchEventProcessor<Integer, Recommendation> processor = new BatchEventProcessor<>(
+                recommendations -> bulkRecommendationService.createRecommendations(recommendations).then(),
+                productIds -> bulkRecommendationService.deleteRecommendations(productIds),
+                messageProcessor(),
+                this::sendToDeadLetters);
+        return processor::process;
+    }
 
-                case DELETE:
-                    int productId = event.getKey();
-                    LOG.info("Delete recommendations with ProductID: {}", productId);
-                    recommendationService.deleteRecommendations(productId).block();
-                    break;
+    // Used instead of messageProcessor in the streaming_reactive profile
+    @Bean
+    public Function<Flux<Message<Event<Integer, Recommendation>>>, Mono<Void>> reactiveMessageProcessor() {
+        ReactiveEventProcessor<Integer, Recommendation> processor = new ReactiveEventProcessor<>(
+                concurrency, this::processEvent, this::sendToDeadLetters);
+        return messages -> processor.process(messages.map(Message::getPayload));
+    }
 
-                default:
-                    String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE or DELETE event";
-                    LOG.warn(errorMessage);
-                    throw new EventProcessingException(errorMessage);
-            }
+    // The reactive processor subscribes to this, messageProcessor blocks on it
+    private Mono<Void> processEvent(Event<Integer, Recommendation> event) {
+        switch (event.getEventType()) {
+            case CREATE:
+                LOG.info("Create recommendation with ID: {}/{}", event.getData().getProductId(), event.getData().getRecommendationId());
+                return recommendationService.createRecommendation(event.getData()).then();
+            case DELETE:
+                LOG.info("Delete recommendations with ProductID: {}", event.getKey());
+                return recommendationService.deleteRecommendations(event.getKey());
+            default:
+                return Mono.error(new EventProcessingException("Incorrect event type: " +
+                        event.getEventType() + ", expected a CREATE or DELETE event"));
+        }
+    }
 
-            LOG.info("Message processing done!");
-        };
+    private void sendToDeadLetters(Event<Integer, Recommendation> event, RuntimeException ex) {
+        streamBridge.getObject().send("deadLetters-out-0", MessageBuilder.withPayload(event)
+                .setHeader("x-exception-message", ex.getMessage())
+                .setHeader("x-exception-fqcn", ex.getClass().getName())
+                .build());
     }
 }
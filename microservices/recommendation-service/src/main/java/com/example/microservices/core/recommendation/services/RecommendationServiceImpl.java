@@ -5,21 +5,32 @@ import com.example.api.core.recommendation.RecommendationService;
 import com.example.api.exceptions.InvalidInputException;
 import com.example.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.example.microservices.core.recommendation.persistence.RecommendationRepository;
+import com.example.util.http.ETagUtil;
+import com.example.util.http.PagingUtil;
 import com.example.util.http.ServiceUtil;
+import com.example.util.tracing.SignalTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.logging.Level;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @RestController
-public class RecommendationServiceImpl implements RecommendationService {
+public class RecommendationServiceImpl implements RecommendationService, BulkRecommendationService {
     private static final Logger LOG = LoggerFactory.getLogger(RecommendationServiceImpl.class);
     private final ServiceUtil serviceUtil;
+    private final PagingUtil pagingUtil;
+    private final SignalTracer tracer;
+    private final ETagUtil eTagUtil;
 
     private final RecommendationRepository repository;
     private final RecommendationMapper mapper;
@@ -28,10 +39,16 @@ public class RecommendationServiceImpl implements RecommendationService {
     public RecommendationServiceImpl(
             RecommendationRepository repository,
             RecommendationMapper mapper,
-            ServiceUtil serviceUtil) {
+            ServiceUtil serviceUtil,
+            PagingUtil pagingUtil,
+            SignalTracer tracer,
+            ETagUtil eTagUtil) {
         this.repository = repository;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.pagingUtil = pagingUtil;
+        this.tracer = tracer;
+        this.eTagUtil = eTagUtil;
     }
 
     @Override
@@ -41,7 +58,37 @@ public class RecommendationServiceImpl implements RecommendationService {
         }
         LOG.info("Will get recommendations for product with id={}", productId);
         return repository.findByProductId(productId)
-                .log(LOG.getName(), Level.FINE)
+                .transform(tracer.flux("getRecommendations"))
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress)
+                .transform(eTagUtil.flux(RecommendationServiceImpl::eTag));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+        LOG.info("Will get recommendations for {} products", productIds.size());
+        return repository.findByProductIdIn(productIds)
+                .transform(tracer.flux("getRecommendationsForProducts"))
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress);
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsPage(int productId, int afterRecommendationId, Integer size) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        int pageSize = pagingUtil.getPageSize(size);
+        LOG.info("Will get {} recommendations for product with id={} after recommendationId={}",
+                pageSize, productId, afterRecommendationId);
+        return repository.findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(
+                        productId, afterRecommendationId, PageRequest.of(0, pageSize))
+                .transform(tracer.flux("getRecommendationsPage"))
                 .map(mapper::entityToApi)
                 .map(this::setServiceAddress);
     }
@@ -52,7 +99,7 @@ public class RecommendationServiceImpl implements RecommendationService {
             throw new InvalidInputException("Invalid productId: " + body.getProductId());
         RecommendationEntity entity = mapper.apiToEntity(body);
         return repository.save(entity)
-                .log(LOG.getName(), Level.FINE)
+                .transform(tracer.mono("createRecommendation"))
                 .onErrorMap(
                         DuplicateKeyException.class,
                         ex -> new InvalidInputException("Duplicate key, Product Id: " +
@@ -62,13 +109,65 @@ public class RecommendationServiceImpl implements RecommendationService {
 
     }
 
+    @Override
+    public Flux<Recommendation> createRecommendations(List<Recommendation> bodies) {
+        bodies.forEach(body -> {
+            if (body.getProductId() < 1)
+                throw new InvalidInputException("Invalid productId: " + body.getProductId());
+        });
+        Set<String> keys = bodies.stream()
+                .map(body -> key(body.getProductId(), body.getRecommendationId()))
+                .collect(Collectors.toSet());
+        Set<Integer> productIds = bodies.stream()
+                .map(Recommendation::getProductId).collect(Collectors.toSet());
+        InvalidInputException duplicateError = new InvalidInputException(
+                "Duplicate key in batch of " + bodies.size() + " recommendations");
+        // A bulk insert isn't atomic in MongoDB, look for duplicates up front so a
+        // failing batch doesn't leave part of its recommendations behind
+        return repository.findByProductIdIn(productIds)
+                .any(entity -> keys.contains(key(entity.getProductId(), entity.getRecommendationId())))
+                .flatMapMany(exists -> {
+                    if (exists || keys.size() < bodies.size()) {
+                        return Flux.error(duplicateError);
+                    }
+                    return repository.saveAll(mapper.apiListToEntityList(bodies));
+                })
+                .transform(tracer.flux("createRecommendations"))
+                .onErrorMap(DuplicateKeyException.class, ex -> duplicateError)
+                .map(mapper::entityToApi);
+    }
+
     @Override
     public Mono<Void> deleteRecommendations(int productId) {
         if (productId < 1)
             throw new InvalidInputException("Invalid productId: " + productId);
         LOG.info("deleteRecommendations: tries to delete recommendations for the product with productId: {}",
                 productId);
-        return repository.deleteAll(repository.findByProductId(productId));
+        return repository.deleteByProductId(productId)
+                .doOnNext(deleted -> LOG.debug("deleteRecommendations: deleted {} recommendations", deleted))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteRecommendations(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+        });
+        LOG.info("deleteRecommendations: tries to delete recommendations for {} products",
+                productIds.size());
+        return repository.deleteByProductIdIn(productIds).transform(tracer.mono("deleteRecommendations")).then();
+    }
+
+    private static String key(int productId, int recommendationId) {
+        return productId + "/" + recommendationId;
+    }
+
+    private static String eTag(List<Recommendation> recommendations) {
+        return ETagUtil.weakETag(recommendations.stream()
+                .flatMapToLong(r -> LongStream.of(r.getRecommendationId(), r.getVersion(),
+                        Objects.hash(r.getAuthor(), r.getRate(), r.getContent())))
+                .toArray());
     }
 
     private Recommendation setServiceAddress(Recommendation e) {
@@ -3,6 +3,8 @@ package com.example.microservices.core.recommendation;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static reactor.core.publisher.Mono.just;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import com.example.api.core.recommendation.Recommendation;
 import com.example.api.event.Event;
@@ -17,11 +19,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
 		properties = {"eureka.client.enabled=false"})
 class RecommendationServiceApplicationTests extends MongoDbTestBase {
+	private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
 	@Autowired
 	private WebTestClient client;
 
@@ -32,6 +37,10 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 	@Qualifier("messageProcessor")
 	private Consumer<Event<Integer, Recommendation>> messageProcessor;
 
+	@Autowired
+	@Qualifier("batchMessageProcessor")
+	private Consumer<List<Event<Integer, Recommendation>>> batchMessageProcessor;
+
 	@BeforeEach
 	void setupDb() {
 		repository.deleteAll().block();
@@ -56,6 +65,82 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 				.jsonPath("$[2].recommendationId").isEqualTo(3);
 	}
 
+	@Test
+	void getRecommendationsNotModified() {
+		sendCreateRecommendationEvent(1, 1);
+		String eTag = getRecommendationsETag(1);
+		assertNotNull(eTag);
+
+		client.get()
+				.uri("/recommendation?productId=1")
+				.accept(MediaType.APPLICATION_JSON)
+				.ifNoneMatch(eTag)
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectBody().isEmpty();
+
+		sendCreateRecommendationEvent(1, 2);
+		assertNotEquals(eTag, getRecommendationsETag(1));
+	}
+
+	@Test
+	void getRecommendationsAsSmile() {
+		sendCreateRecommendationEvent(1, 1);
+		sendCreateRecommendationEvent(1, 2);
+
+		List<Recommendation> recommendations = client.get()
+				.uri("/recommendation?productId=1")
+				.accept(SMILE)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(SMILE)
+				.expectBodyList(Recommendation.class)
+				.returnResult().getResponseBody();
+		assertNotNull(recommendations);
+		assertEquals(2, recommendations.size());
+		assertEquals(1, recommendations.get(0).getProductId());
+	}
+
+	@Test
+	void getRecommendationsForProducts() {
+		sendCreateRecommendationEvent(1, 1);
+		sendCreateRecommendationEvent(1, 2);
+		sendCreateRecommendationEvent(2, 1);
+		sendCreateRecommendationEvent(3, 1);
+
+		getAndVerifyRecommendationsByProductId("?productIds=1,2", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(3);
+	}
+
+	@Test
+	void getRecommendationsPage() {
+		for (int recommendationId = 5; recommendationId >= 1; recommendationId--) {
+			sendCreateRecommendationEvent(1, recommendationId);
+		}
+		sendCreateRecommendationEvent(2, 1);
+
+		getAndVerifyRecommendationsByProductId("/page?productId=1&size=2", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].recommendationId").isEqualTo(1)
+				.jsonPath("$[1].recommendationId").isEqualTo(2);
+		getAndVerifyRecommendationsByProductId("/page?productId=1&after=2&size=2", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].recommendationId").isEqualTo(3)
+				.jsonPath("$[1].recommendationId").isEqualTo(4);
+		getAndVerifyRecommendationsByProductId("/page?productId=1&after=4&size=2", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(1)
+				.jsonPath("$[0].recommendationId").isEqualTo(5);
+		getAndVerifyRecommendationsByProductId("/page?productId=1&after=5", HttpStatus.OK)
+				.jsonPath("$.length()").isEqualTo(0);
+	}
+
+	@Test
+	void getRecommendationsPageInvalidSize() {
+		getAndVerifyRecommendationsByProductId("/page?productId=1&size=101", HttpStatus.UNPROCESSABLE_ENTITY)
+				.jsonPath("$.path").isEqualTo("/recommendation/page")
+				.jsonPath("$.message").isEqualTo("Invalid page size: 101, must be between 1 and 100");
+	}
+
 	@Test
 	void duplicateError() {
 		int productId = 1;
@@ -113,6 +198,16 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 				.jsonPath("$.message").isEqualTo("Invalid productId: " + productIdInvalid);
 	}
 
+	private String getRecommendationsETag(int productId) {
+		return client.get()
+				.uri("/recommendation?productId=" + productId)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(String.class)
+				.getResponseHeaders().getETag();
+	}
+
 	private WebTestClient.BodyContentSpec getAndVerifyRecommendationsByProductId(
 			String productIdQuery, HttpStatus expectedStatus
 	) {
@@ -133,17 +228,35 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 				expectedStatus);
 	}
 
+	@Test
+	void batchCreateAndDeleteRecommendations() {
+		batchMessageProcessor.accept(List.of(
+				createRecommendationEvent(1, 1),
+				createRecommendationEvent(1, 2),
+				createRecommendationEvent(2, 1),
+				deleteRecommendationEvent(1),
+				createRecommendationEvent(1, 3)));
+
+		assertEquals(1, repository.findByProductId(1).count().block());
+		assertEquals(1, repository.findByProductId(2).count().block());
+	}
+
 	private void sendCreateRecommendationEvent(int productId, int recommendationId) {
+		messageProcessor.accept(createRecommendationEvent(productId, recommendationId));
+	}
+
+	private void sendDeleteRecommendationEvent(int productId) {
+		messageProcessor.accept(deleteRecommendationEvent(productId));
+	}
+
+	private Event<Integer, Recommendation> createRecommendationEvent(int productId, int recommendationId) {
 		Recommendation recommendation = new Recommendation(productId, recommendationId,
 				"Author " + recommendationId, recommendationId, "Content " + recommendationId,
 				"SA");
-		Event<Integer, Recommendation> event = new Event<>(Event.Type.CREATE,productId,
-				recommendation);
-		messageProcessor.accept(event);
+		return new Event<>(Event.Type.CREATE, productId, recommendation);
 	}
 
-	private void sendDeleteRecommendationEvent(int productId) {
-		Event<Integer, Recommendation> event = new Event<>(Event.Type.DELETE, productId, null);
-		messageProcessor.accept(event);
+	private Event<Integer, Recommendation> deleteRecommendationEvent(int productId) {
+		return new Event<>(Event.Type.DELETE, productId, null);
 	}
 }
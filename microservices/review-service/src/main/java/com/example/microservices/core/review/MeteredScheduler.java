@@ -0,0 +1,181 @@
+package com.example.microservices.core.review;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Wraps a Scheduler and exposes the number of tasks waiting to run on it and the
+// number of tasks running on it as gauges, whatever executor the scheduler uses.
+// Declared as a bean it is bound to the meter registries by Spring Boot.
+public class MeteredScheduler implements Scheduler, MeterBinder {
+    private final Scheduler delegate;
+    private final String name;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    public MeteredScheduler(Scheduler delegate, String name) {
+        this.delegate = delegate;
+        this.name = name;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("scheduler.tasks.queued", queued, AtomicInteger::get)
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("scheduler.tasks.active", active, AtomicInteger::get)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        return meter(task, delegate::schedule, null);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        return meter(task, metered -> delegate.schedule(metered, delay, unit), null);
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return delegate.schedulePeriodically(task, initialDelay, period, unit);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new MeteredWorker(delegate.createWorker());
+    }
+
+    @Override
+    public long now(TimeUnit unit) {
+        return delegate.now(unit);
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate.isDisposed();
+    }
+
+    private Disposable meter(Runnable task, Function<Runnable, Disposable> schedule,
+                             Disposable.Composite workerTasks) {
+        MeteredTask metered = new MeteredTask(task, workerTasks);
+        queued.incrementAndGet();
+        // Tasks left on a worker are cancelled when it is disposed
+        if (workerTasks != null) {
+            workerTasks.add(metered);
+        }
+        try {
+            metered.scheduled = schedule.apply(metered);
+        } catch (RuntimeException ex) {
+            metered.dispose();
+            throw ex;
+        }
+        return metered;
+    }
+
+    // A task leaves the queue when it starts, is cancelled or is rejected
+    private class MeteredTask implements Runnable, Disposable {
+        private final Runnable task;
+        private final Disposable.Composite workerTasks;
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+        private volatile Disposable scheduled;
+
+        private MeteredTask(Runnable task, Disposable.Composite workerTasks) {
+            this.task = task;
+            this.workerTasks = workerTasks;
+        }
+
+        @Override
+        public void run() {
+            dequeue();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                if (workerTasks != null) {
+                    workerTasks.remove(this);
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            dequeue();
+            Disposable current = scheduled;
+            if (current != null) {
+                current.dispose();
+            }
+            if (workerTasks != null) {
+                workerTasks.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            Disposable current = scheduled;
+            return current != null && current.isDisposed();
+        }
+
+        private void dequeue() {
+            if (dequeued.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    private class MeteredWorker implements Worker {
+        private final Worker worker;
+        private final Disposable.Composite tasks = Disposables.composite();
+
+        private MeteredWorker(Worker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return meter(task, worker::schedule, tasks);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            return meter(task, metered -> worker.schedule(metered, delay, unit), tasks);
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            return worker.schedulePeriodically(task, initialDelay, period, unit);
+        }
+
+        @Override
+        public void dispose() {
+            tasks.dispose();
+            worker.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return worker.isDisposed();
+        }
+    }
+}
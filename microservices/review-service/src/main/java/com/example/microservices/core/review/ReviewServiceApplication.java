@@ -12,22 +12,28 @@ import org.springframework.context.annotation.ComponentScan;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @SpringBootApplication
-@ComponentScan("com.example")
+@ComponentScan({"com.example.microservices.core.review", "com.example.util"})
 public class ReviewServiceApplication {
 	private static final Logger LOG =
 			LoggerFactory.getLogger(ReviewServiceApplication.class);
 
 	private final Integer threadPoolSize;
 	private final Integer taskQueueSize;
+	private final boolean virtualThreads;
 
 	@Autowired
 	public ReviewServiceApplication(
 			@Value("${app.threadPoolSize:10}") Integer threadPoolSize,
-			@Value("${app.taskQueueSize:100}") Integer taskQueueSize
+			@Value("${app.taskQueueSize:100}") Integer taskQueueSize,
+			@Value("${app.virtualThreads:false}") boolean virtualThreads
 	) {
 		this.threadPoolSize = threadPoolSize;
 		this.taskQueueSize = taskQueueSize;
+		this.virtualThreads = virtualThreads;
 	}
 
 	public static void main(String[] args) {
@@ -38,11 +44,34 @@ public class ReviewServiceApplication {
 	}
 
 	@Bean
-	public Scheduler jdbcScheduler() {
-		return Schedulers.newBoundedElastic(
-				threadPoolSize,
-				taskQueueSize,
-				"jdbc-pool");
+	public MeteredScheduler jdbcScheduler() {
+		ExecutorService virtualThreadExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+		Scheduler scheduler;
+		if (virtualThreadExecutor != null) {
+			LOG.info("Creates a jdbcScheduler that runs each task on a new virtual thread");
+			scheduler = Schedulers.fromExecutorService(virtualThreadExecutor, "jdbc-virtual");
+		} else {
+			LOG.info("Creates a jdbcScheduler with thread pool size = {}", threadPoolSize);
+			scheduler = Schedulers.newBoundedElastic(
+					threadPoolSize,
+					taskQueueSize,
+					"jdbc-pool");
+		}
+		return new MeteredScheduler(scheduler, "jdbcScheduler");
+	}
+
+	// Looked up by reflection so the service still builds for Java 11,
+	// returns null when not running on Java 21 or later
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			LOG.warn("Virtual threads require Java 21 or later, running on Java {}",
+					System.getProperty("java.version"));
+			return null;
+		}
 	}
 
 }
@@ -0,0 +1,127 @@
+package com.example.microservices.core.review.persistence;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Reactive counterpart of ReviewRepository used in the r2dbc profile, works on
+// the reviews table created by schema-r2dbc.sql
+@Profile("r2dbc")
+@Repository
+public class R2dbcReviewRepository {
+    private static final String SELECT =
+            "SELECT id, version, product_id, review_id, author, subject, content FROM reviews";
+    private static final String INSERT =
+            "INSERT INTO reviews (version, product_id, review_id, author, subject, content) VALUES ";
+
+    private final DatabaseClient client;
+
+    @Autowired
+    public R2dbcReviewRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Flux<ReviewEntity> findByProductId(int productId) {
+        return client.sql(SELECT + " WHERE product_id = :productId ORDER BY id")
+                .bind("productId", productId)
+                .map(R2dbcReviewRepository::toEntity)
+                .all();
+    }
+
+    public Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql(SELECT + " WHERE product_id IN (:productIds) ORDER BY id")
+                .bind("productIds", productIds)
+                .map(R2dbcReviewRepository::toEntity)
+                .all();
+    }
+
+    public Flux<ReviewEntity> findPageByProductId(int productId, int afterReviewId, int size) {
+        return client.sql(SELECT + " WHERE product_id = :productId AND review_id > :after" +
+                        " ORDER BY review_id LIMIT :size")
+                .bind("productId", productId)
+                .bind("after", afterReviewId)
+                .bind("size", size)
+                .map(R2dbcReviewRepository::toEntity)
+                .all();
+    }
+
+    public Mono<ReviewEntity> save(ReviewEntity entity) {
+        return saveAll(Collections.singletonList(entity)).next();
+    }
+
+    // Inserts all entities with one multi-row INSERT, i.e. all or none of them
+    public Flux<ReviewEntity> saveAll(List<ReviewEntity> entities) {
+        if (entities.isEmpty()) {
+            return Flux.empty();
+        }
+        StringBuilder sql = new StringBuilder(INSERT);
+        for (int i = 0; i < entities.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(String.format(
+                    "(0, :productId%1$d, :reviewId%1$d, :author%1$d, :subject%1$d, :content%1$d)", i));
+        }
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+        for (int i = 0; i < entities.size(); i++) {
+            ReviewEntity entity = entities.get(i);
+            spec = spec.bind("productId" + i, entity.getProductId())
+                    .bind("reviewId" + i, entity.getReviewId());
+            spec = bindNullable(spec, "author" + i, entity.getAuthor());
+            spec = bindNullable(spec, "subject" + i, entity.getSubject());
+            spec = bindNullable(spec, "content" + i, entity.getContent());
+        }
+        return spec.fetch().rowsUpdated().thenMany(Flux.fromIterable(entities));
+    }
+
+    public Mono<Integer> deleteByProductId(int productId) {
+        return client.sql("DELETE FROM reviews WHERE product_id = :productId")
+                .bind("productId", productId)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Integer> deleteByProductIdIn(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return Mono.just(0);
+        }
+        return client.sql("DELETE FROM reviews WHERE product_id IN (:productIds)")
+                .bind("productIds", productIds)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Integer> deleteAll() {
+        return client.sql("DELETE FROM reviews").fetch().rowsUpdated();
+    }
+
+    public Mono<Long> count() {
+        return client.sql("SELECT COUNT(*) AS cnt FROM reviews")
+                .map((row, metadata) -> row.get("cnt", Long.class))
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(
+            DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static ReviewEntity toEntity(Row row, RowMetadata metadata) {
+        ReviewEntity entity = new ReviewEntity(
+                row.get("product_id", Integer.class),
+                row.get("review_id", Integer.class),
+                row.get("author", String.class),
+                row.get("subject", String.class),
+                row.get("content", String.class));
+        entity.setId(row.get("id", Integer.class));
+        entity.setVersion(row.get("version", Integer.class));
+        return entity;
+    }
+}
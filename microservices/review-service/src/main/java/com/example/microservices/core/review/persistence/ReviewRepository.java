@@ -1,11 +1,36 @@
 package com.example.microservices.core.review.persistence;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
     @Transactional(readOnly = true)
     List<ReviewEntity> findByProductId(int productId);
+
+    @Transactional(readOnly = true)
+    List<ReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    // Keyset page, served by the unique (productId, reviewId) index
+    @Transactional(readOnly = true)
+    List<ReviewEntity> findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(
+            int productId, int afterReviewId, Pageable pageable);
+
+    // Bulk deletes run as one DELETE statement instead of loading and deleting
+    // each entity, they skip the optimistic version check
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReviewEntity r WHERE r.productId = :productId")
+    int deleteByProductId(@Param("productId") int productId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReviewEntity r WHERE r.productId IN :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Integer> productIds);
 }
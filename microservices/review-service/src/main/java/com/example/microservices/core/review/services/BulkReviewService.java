@@ -0,0 +1,13 @@
+package com.example.microservices.core.review.services;
+
+import com.example.api.core.review.Review;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface BulkReviewService {
+    Flux<Review> createReviews(List<Review> bodies);
+
+    Mono<Void> deleteReviews(List<Integer> productIds);
+}
@@ -1,15 +1,26 @@
 package com.example.microservices.core.review.services;
 
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import com.example.api.core.review.Review;
 import com.example.api.core.review.ReviewService;
 import com.example.api.event.Event;
 import com.example.api.exceptions.EventProcessingException;
+import com.example.util.messaging.BatchEventProcessor;
+import com.example.util.messaging.ReactiveEventProcessor;
 
 @Configuration
 public class MessageProcessorConfig {
@@ -17,38 +28,70 @@ public class MessageProcessorConfig {
     private static final Logger LOG = LoggerFactory.getLogger(MessageProcessorConfig.class);
 
     private final ReviewService reviewService;
+    private final BulkReviewService bulkReviewService;
+    // Looked up on use, the persistence test slices have no StreamBridge
+    private final ObjectProvider<StreamBridge> streamBridge;
+    private final int concurrency;
 
     @Autowired
-    public MessageProcessorConfig(ReviewService reviewService) {
+    public MessageProcessorConfig(
+            ReviewService reviewService,
+            BulkReviewService bulkReviewService,
+            ObjectProvider<StreamBridge> streamBridge,
+            @Value("${app.messageProcessor.concurrency:16}") int concurrency) {
         this.reviewService = reviewService;
+        this.bulkReviewService = bulkReviewService;
+        this.streamBridge = streamBridge;
+        this.concurrency = concurrency;
     }
 
     @Bean
     public Consumer<Event<Integer, Review>> messageProcessor() {
         return event -> {
             LOG.info("Process message created at {}...", event.getEventCreatedAt());
+            processEvent(event).block();
+            LOG.info("Message processing done!");
+        };
+    }
 
-            switch (event.getEventType()) {
-
-                case CREATE:
-                    Review review = event.getData();
-                    LOG.info("Create review with ID: {}/{}", review.getProductId(), review.getReviewId());
-                    reviewService.createReview(review).block();
-                    break;
+    // Used instead of messageProcessor in the streaming_batch profile
+    @Bean
+    public Consumer<List<Event<Integer, Review>>> batchMessageProcessor() {
+        BatchEventProcessor<Integer, Review> processor = new BatchEventProcessor<>(
+                reviews -> bulkReviewService.createReviews(reviews).then(),
+                productIds -> bulkReviewService.deleteReviews(productIds),
+                messageProcessor(),
+                this::sendToDeadLetters);
+        return processor::process;
+    }
 
-                case DELETE:
-                    int productId = event.getKey();
-                    LOG.info("Delete reviews with ProductID: {}", productId);
-                    reviewService.deleteReviews(productId).block();
-                    break;
+    // Used instead of messageProcessor in the streaming_reactive profile
+    @Bean
+    public Function<Flux<Message<Event<Integer, Review>>>, Mono<Void>> reactiveMessageProcessor() {
+        ReactiveEventProcessor<Integer, Review> processor = new ReactiveEventProcessor<>(
+                concurrency, this::processEvent, this::sendToDeadLetters);
+        return messages -> processor.process(messages.map(Message::getPayload));
+    }
 
-                default:
-                    String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE or DELETE event";
-                    LOG.warn(errorMessage);
-                    throw new EventProcessingException(errorMessage);
-            }
+    // The reactive processor subscribes to this, messageProcessor blocks on it
+    private Mono<Void> processEvent(Event<Integer, Review> event) {
+        switch (event.getEventType()) {
+            case CREATE:
+                LOG.info("Create review with ID: {}/{}", event.getData().getProductId(), event.getData().getReviewId());
+                return reviewService.createReview(event.getData()).then();
+            case DELETE:
+                LOG.info("Delete reviews with ProductID: {}", event.getKey());
+                return reviewService.deleteReviews(event.getKey());
+            default:
+                return Mono.error(new EventProcessingException("Incorrect event type: " +
+                        event.getEventType() + ", expected a CREATE or DELETE event"));
+        }
+    }
 
-            LOG.info("Message processing done!");
-        };
+    private void sendToDeadLetters(Event<Integer, Review> event, RuntimeException ex) {
+        streamBridge.getObject().send("deadLetters-out-0", MessageBuilder.withPayload(event)
+                .setHeader("x-exception-message", ex.getMessage())
+                .setHeader("x-exception-fqcn", ex.getClass().getName())
+                .build());
     }
 }
@@ -0,0 +1,147 @@
+package com.example.microservices.core.review.services;
+
+import com.example.api.core.review.Review;
+import com.example.api.core.review.ReviewService;
+import com.example.api.exceptions.InvalidInputException;
+import com.example.microservices.core.review.persistence.R2dbcReviewRepository;
+import com.example.util.http.ETagUtil;
+import com.example.util.http.PagingUtil;
+import com.example.util.http.ServiceUtil;
+import com.example.util.tracing.SignalTracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Same contract as ReviewServiceImpl but non-blocking all the way down to the
+// database, so concurrent requests aren't capped by the jdbcScheduler pool
+@Profile("r2dbc")
+@RestController
+public class R2dbcReviewServiceImpl implements ReviewService, BulkReviewService {
+    private static final Logger LOG = LoggerFactory.getLogger(R2dbcReviewServiceImpl.class);
+
+    private final ServiceUtil serviceUtil;
+    private final PagingUtil pagingUtil;
+    private final SignalTracer tracer;
+    private final ETagUtil eTagUtil;
+    private final ReviewMapper mapper;
+    private final R2dbcReviewRepository repository;
+
+    @Autowired
+    public R2dbcReviewServiceImpl(
+            R2dbcReviewRepository repository,
+            ReviewMapper mapper,
+            ServiceUtil serviceUtil,
+            PagingUtil pagingUtil,
+            SignalTracer tracer,
+            ETagUtil eTagUtil) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.serviceUtil = serviceUtil;
+        this.pagingUtil = pagingUtil;
+        this.tracer = tracer;
+        this.eTagUtil = eTagUtil;
+    }
+
+    @Override
+    public Mono<Review> createReview(Review body) {
+        if (body.getProductId() < 1) {
+            throw new InvalidInputException("Invalid productId: " + body.getProductId());
+        }
+        return repository.save(mapper.apiToEntity(body))
+                .transform(tracer.mono("createReview"))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        ex -> new InvalidInputException("Duplicate key, Product Id: " +
+                                body.getProductId() + ", Review Id: " + body.getReviewId()))
+                .map(mapper::entityToApi);
+    }
+
+    @Override
+    public Flux<Review> createReviews(List<Review> bodies) {
+        bodies.forEach(body -> {
+            if (body.getProductId() < 1) {
+                throw new InvalidInputException("Invalid productId: " + body.getProductId());
+            }
+        });
+        return repository.saveAll(mapper.apiListToEntityList(bodies))
+                .transform(tracer.flux("createReviews"))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        ex -> new InvalidInputException("Duplicate key in batch of " + bodies.size() + " reviews"))
+                .map(mapper::entityToApi);
+    }
+
+    @Override
+    public Flux<Review> getReviews(int productId) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        LOG.info("Will get reviews for product with id={}", productId);
+
+        return repository.findByProductId(productId)
+                .transform(tracer.flux("getReviews"))
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress)
+                .transform(eTagUtil.flux(ReviewServiceImpl::eTag));
+    }
+
+    @Override
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+        LOG.info("Will get reviews for {} products", productIds.size());
+
+        return repository.findByProductIdIn(productIds)
+                .transform(tracer.flux("getReviewsForProducts"))
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress);
+    }
+
+    @Override
+    public Flux<Review> getReviewsPage(int productId, int afterReviewId, Integer size) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        int pageSize = pagingUtil.getPageSize(size);
+        LOG.info("Will get {} reviews for product with id={} after reviewId={}",
+                pageSize, productId, afterReviewId);
+
+        return repository.findPageByProductId(productId, afterReviewId, pageSize)
+                .transform(tracer.flux("getReviewsPage"))
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress);
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+        return repository.deleteByProductId(productId).then();
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+        LOG.debug("deleteReviews: tries to delete reviews for {} products", productIds.size());
+        return repository.deleteByProductIdIn(productIds).then();
+    }
+
+    private Review setServiceAddress(Review e) {
+        e.setServiceAddress(serviceUtil.getServiceAddress());
+        return e;
+    }
+}
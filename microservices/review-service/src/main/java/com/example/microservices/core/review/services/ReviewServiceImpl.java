@@ -5,25 +5,36 @@ import com.example.api.core.review.ReviewService;
 import com.example.api.exceptions.InvalidInputException;
 import com.example.microservices.core.review.persistence.ReviewEntity;
 import com.example.microservices.core.review.persistence.ReviewRepository;
+import com.example.util.http.ETagUtil;
+import com.example.util.http.PagingUtil;
 import com.example.util.http.ServiceUtil;
+import com.example.util.tracing.SignalTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
+import java.util.Objects;
+import java.util.stream.LongStream;
 
+@Profile("!r2dbc")
 @RestController
-public class ReviewServiceImpl implements ReviewService {
+public class ReviewServiceImpl implements ReviewService, BulkReviewService {
     private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
 
     private final ServiceUtil serviceUtil;
+    private final PagingUtil pagingUtil;
+    private final SignalTracer tracer;
+    private final ETagUtil eTagUtil;
     private final ReviewMapper mapper;
     private final ReviewRepository repository;
 
@@ -35,11 +46,17 @@ public class ReviewServiceImpl implements ReviewService {
             Scheduler jdbcScheduler,
             ReviewRepository repository,
                              ReviewMapper mapper,
-                             ServiceUtil serviceUtil) {
+                             ServiceUtil serviceUtil,
+                             PagingUtil pagingUtil,
+                             SignalTracer tracer,
+                             ETagUtil eTagUtil) {
         this.jdbcScheduler=jdbcScheduler;
         this.repository = repository;
         this.mapper = mapper;
         this.serviceUtil=serviceUtil;
+        this.pagingUtil = pagingUtil;
+        this.tracer = tracer;
+        this.eTagUtil = eTagUtil;
     }
 
     @Override
@@ -51,6 +68,18 @@ public class ReviewServiceImpl implements ReviewService {
                 .subscribeOn(jdbcScheduler);
     }
 
+    @Override
+    public Flux<Review> createReviews(List<Review> bodies) {
+        bodies.forEach(body -> {
+            if (body.getProductId() < 1) {
+                throw new InvalidInputException("Invalid productId: " + body.getProductId());
+            }
+        });
+        return Mono.fromCallable(() -> internalCreateReviews(bodies))
+                .flatMapMany(Flux::fromIterable)
+                .subscribeOn(jdbcScheduler);
+    }
+
     @Override
     public Flux<Review> getReviews(int productId) {
         if (productId<1) {
@@ -60,7 +89,38 @@ public class ReviewServiceImpl implements ReviewService {
 
         return Mono.fromCallable(() -> internalGetReviews(productId))
                 .flatMapMany(Flux::fromIterable)
-                .log(LOG.getName(), Level.FINE)
+                .transform(tracer.flux("getReviews"))
+                .subscribeOn(jdbcScheduler)
+                .transform(eTagUtil.flux(ReviewServiceImpl::eTag));
+    }
+
+    @Override
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+        LOG.info("Will get reviews for {} products", productIds.size());
+
+        return Mono.fromCallable(() -> internalGetReviewsForProducts(productIds))
+                .flatMapMany(Flux::fromIterable)
+                .transform(tracer.flux("getReviewsForProducts"))
+                .subscribeOn(jdbcScheduler);
+    }
+
+    @Override
+    public Flux<Review> getReviewsPage(int productId, int afterReviewId, Integer size) {
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        int pageSize = pagingUtil.getPageSize(size);
+        LOG.info("Will get {} reviews for product with id={} after reviewId={}",
+                pageSize, productId, afterReviewId);
+
+        return Mono.fromCallable(() -> internalGetReviewsPage(productId, afterReviewId, pageSize))
+                .flatMapMany(Flux::fromIterable)
+                .transform(tracer.flux("getReviewsPage"))
                 .subscribeOn(jdbcScheduler);
     }
 
@@ -74,6 +134,18 @@ public class ReviewServiceImpl implements ReviewService {
                 .subscribeOn(jdbcScheduler).then();
     }
 
+    @Override
+    public Mono<Void> deleteReviews(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        return Mono.fromRunnable(() -> internalDeleteReviews(productIds))
+                .subscribeOn(jdbcScheduler).then();
+    }
+
     private List<Review> internalGetReviews(int productId) {
         List<ReviewEntity> entityList = repository.findByProductId(productId);
         List<Review> list = mapper.entityListToApiList(entityList);
@@ -83,9 +155,48 @@ public class ReviewServiceImpl implements ReviewService {
         return list;
     }
 
+    private List<Review> internalGetReviewsForProducts(List<Integer> productIds) {
+        List<ReviewEntity> entityList = repository.findByProductIdIn(productIds);
+        List<Review> list = mapper.entityListToApiList(entityList);
+        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+
+        LOG.debug("getReviewsForProducts: response size: {}", list.size());
+        return list;
+    }
+
+    private List<Review> internalGetReviewsPage(int productId, int afterReviewId, int pageSize) {
+        List<ReviewEntity> entityList = repository.findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(
+                productId, afterReviewId, PageRequest.of(0, pageSize));
+        List<Review> list = mapper.entityListToApiList(entityList);
+        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+
+        LOG.debug("getReviewsPage: response size: {}", list.size());
+        return list;
+    }
+
     private void internalDeleteReviews(int productId) {
         LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-        repository.deleteAll(repository.findByProductId(productId));
+        int deleted = repository.deleteByProductId(productId);
+        LOG.debug("deleteReviews: deleted {} reviews", deleted);
+    }
+
+    private void internalDeleteReviews(List<Integer> productIds) {
+        LOG.debug("deleteReviews: tries to delete reviews for {} products", productIds.size());
+        int deleted = repository.deleteByProductIdIn(productIds);
+        LOG.debug("deleteReviews: deleted {} reviews", deleted);
+    }
+
+    private List<Review> internalCreateReviews(List<Review> bodies) {
+        try {
+            // saveAll runs in one transaction and, with hibernate.jdbc.batch_size
+            // set, sends the inserts as JDBC batches
+            List<ReviewEntity> newEntities = new ArrayList<>();
+            repository.saveAll(mapper.apiListToEntityList(bodies)).forEach(newEntities::add);
+            LOG.debug("createReviews: created {} review entities", newEntities.size());
+            return mapper.entityListToApiList(newEntities);
+        } catch (DataIntegrityViolationException dive) {
+            throw new InvalidInputException("Duplicate key in batch of " + bodies.size() + " reviews");
+        }
     }
 
     private Review internalCreateReview(Review body) {
@@ -100,4 +211,12 @@ public class ReviewServiceImpl implements ReviewService {
                     body.getProductId() + ", Review Id: " + body.getReviewId());
         }
     }
+
+    // Shared with R2dbcReviewServiceImpl, so both profiles answer with the same ETags
+    static String eTag(List<Review> reviews) {
+        return ETagUtil.weakETag(reviews.stream()
+                .flatMapToLong(r -> LongStream.of(r.getReviewId(), r.getVersion(),
+                        Objects.hash(r.getAuthor(), r.getSubject(), r.getContent())))
+                .toArray());
+    }
 }
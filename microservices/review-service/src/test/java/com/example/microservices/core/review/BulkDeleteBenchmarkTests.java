@@ -0,0 +1,63 @@
+package com.example.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.microservices.core.review.persistence.ReviewEntity;
+import com.example.microservices.core.review.persistence.ReviewRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Delete latency as a function of the number of reviews of a product, comparing the
+// old deleteAll(findByProductId) with the single statement deleteByProductId,
+// run with: ./gradlew :microservices:review-service:test -Dbenchmarks=true
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+        "logging.level.org.hibernate=WARN"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BulkDeleteBenchmarkTests extends MySqlTestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkDeleteBenchmarkTests.class);
+
+    private static final int[] REVIEW_COUNTS = {10, 100, 1000, 10000};
+
+    @Autowired
+    private ReviewRepository repository;
+
+    @Test
+    void deleteLatencyByReviewCount() {
+        for (int reviewCount : REVIEW_COUNTS) {
+            seed(reviewCount);
+            long start = System.nanoTime();
+            repository.deleteAll(repository.findByProductId(1));
+            double loadAndDeleteMs = (System.nanoTime() - start) / 1_000_000.0;
+            assertEquals(0, repository.count());
+
+            seed(reviewCount);
+            start = System.nanoTime();
+            int deleted = repository.deleteByProductId(1);
+            double bulkDeleteMs = (System.nanoTime() - start) / 1_000_000.0;
+            assertEquals(reviewCount, deleted);
+
+            LOG.info("{} reviews: deleteAll(findByProductId) {} ms, deleteByProductId {} ms", reviewCount,
+                    String.format("%.1f", loadAndDeleteMs), String.format("%.1f", bulkDeleteMs));
+        }
+    }
+
+    private void seed(int reviewCount) {
+        repository.deleteAll();
+        repository.saveAll(IntStream.rangeClosed(1, reviewCount)
+                .mapToObj(reviewId -> new ReviewEntity(1, reviewId, "a", "s", "c"))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.example.microservices.core.review.persistence.ReviewEntity;
+import com.example.microservices.core.review.persistence.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Compares throughput and p99 latency of JPA queries on the bounded elastic and the
+// virtual thread jdbcScheduler, run with: ./gradlew :microservices:review-service:test -Dbenchmarks=true
+// The virtual thread run is skipped unless the tests run on Java 21 or later. The bounded
+// elastic run uses the pool and queue sizes of the production jdbcScheduler, requests
+// it rejects once the queue is full are counted instead of failing the run.
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=50",
+        "logging.level.org.hibernate=WARN"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class JdbcSchedulerBenchmarkTests extends MySqlTestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcSchedulerBenchmarkTests.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmarks.requests", 5000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmarks.concurrency", 500);
+
+    @Autowired
+    private ReviewRepository repository;
+
+    @Value("${app.threadPoolSize:10}")
+    private int threadPoolSize;
+
+    @Value("${app.taskQueueSize:100}")
+    private int taskQueueSize;
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll();
+        repository.saveAll(IntStream.rangeClosed(1, 100)
+                .mapToObj(i -> new ReviewEntity(i % 10 + 1, i, "a", "s", "c"))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void boundedElasticScheduler() {
+        run("boundedElastic", Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "jdbc-pool"));
+    }
+
+    @Test
+    void virtualThreadScheduler() {
+        ExecutorService executor = ReviewServiceApplication.newVirtualThreadExecutor();
+        assumeTrue(executor != null, "Virtual threads require Java 21 or later");
+        run("virtualThreads", Schedulers.fromExecutorService(executor, "jdbc-virtual"));
+    }
+
+    private void run(String name, Scheduler scheduler) {
+        long[] latencies = new long[REQUESTS];
+        AtomicInteger rejected = new AtomicInteger();
+        long start = System.nanoTime();
+        Long completed = Flux.range(0, REQUESTS)
+                .flatMap(i -> Mono.defer(() -> {
+                    long requestStart = System.nanoTime();
+                    return Mono.fromCallable(() -> repository.findByProductId(i % 10 + 1))
+                            .subscribeOn(scheduler)
+                            .doOnSuccess(reviews -> latencies[i] = System.nanoTime() - requestStart)
+                            .onErrorResume(RejectedExecutionException.class, ex -> {
+                                rejected.incrementAndGet();
+                                return Mono.empty();
+                            });
+                }), CONCURRENCY)
+                .count()
+                .block();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        scheduler.dispose();
+
+        assertEquals(REQUESTS, completed + rejected.get());
+        double p99 = 0;
+        if (completed > 0) {
+            long[] completedLatencies = Arrays.stream(latencies).filter(latency -> latency > 0).sorted().toArray();
+            p99 = completedLatencies[(int) Math.ceil(completedLatencies.length * 0.99) - 1] / 1_000_000.0;
+        }
+        LOG.info("{}: {} requests with concurrency {}, {} completed, {} rejected, {} requests/s, p99 {} ms",
+                name, REQUESTS, CONCURRENCY, completed, rejected.get(),
+                String.format("%.0f", completed / seconds), String.format("%.1f", p99));
+    }
+}
@@ -57,6 +57,14 @@ public class PersistenceTests extends MySqlTestBase {
         assertFalse(repository.existsById(savedEntity.getId()));
     }
 
+    @Test
+    void deleteByProductId() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+        assertEquals(2, repository.deleteByProductId(1));
+        assertEquals(1, repository.count());
+    }
+
     @Test
     void getByProductId() {
         List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
@@ -0,0 +1,81 @@
+package com.example.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.api.core.review.Review;
+import com.example.microservices.core.review.persistence.R2dbcReviewRepository;
+import com.example.microservices.core.review.persistence.ReviewEntity;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Shows that the r2dbc mode runs more queries concurrently than the jdbcScheduler
+// has threads, run with: ./gradlew :microservices:review-service:test -Dbenchmarks=true
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "logging.level.com.example=INFO"})
+@ActiveProfiles("r2dbc")
+class R2dbcReviewLoadTests extends MySqlTestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(R2dbcReviewLoadTests.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmarks.requests", 5000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmarks.concurrency", 500);
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${app.threadPoolSize:10}")
+    private int threadPoolSize;
+
+    @Autowired
+    private R2dbcReviewRepository repository;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Test
+    void concurrentQueriesBeyondThreadPoolSize() {
+        repository.deleteAll().block();
+        repository.saveAll(IntStream.rangeClosed(1, 100)
+                .mapToObj(i -> new ReviewEntity(i % 10 + 1, i, "a", "s", "c"))
+                .collect(Collectors.toList())).blockLast();
+
+        ConnectionPool pool = (ConnectionPool) connectionFactory;
+        AtomicInteger maxAcquired = new AtomicInteger();
+        Disposable sampler = Flux.interval(Duration.ofMillis(1))
+                .subscribe(tick -> pool.getMetrics().ifPresent(
+                        metrics -> maxAcquired.accumulateAndGet(metrics.acquiredSize(), Math::max)));
+
+        WebClient client = WebClient.create("http://localhost:" + port);
+        long start = System.nanoTime();
+        Flux.range(0, REQUESTS)
+                .flatMap(i -> client.get().uri("/review?productId=" + (i % 10 + 1))
+                        .retrieve().bodyToFlux(Review.class).collectList(), CONCURRENCY)
+                .blockLast();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        sampler.dispose();
+
+        LOG.info("{} requests with concurrency {} in {} s, {} requests/s, max {} connections in use",
+                REQUESTS, CONCURRENCY, String.format("%.2f", seconds),
+                String.format("%.0f", REQUESTS / seconds), maxAcquired.get());
+        assertTrue(maxAcquired.get() > threadPoolSize,
+                "Expected more than " + threadPoolSize + " concurrent queries, got " + maxAcquired.get());
+    }
+}
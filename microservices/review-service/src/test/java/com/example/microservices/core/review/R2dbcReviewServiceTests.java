@@ -0,0 +1,166 @@
+package com.example.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.api.core.review.Review;
+import com.example.api.event.Event;
+import com.example.api.exceptions.InvalidInputException;
+import com.example.microservices.core.review.persistence.R2dbcReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.r2dbc.url=r2dbc:h2:mem:///review_db;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password="})
+@ActiveProfiles("r2dbc")
+class R2dbcReviewServiceTests {
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private R2dbcReviewRepository repository;
+
+    @Autowired
+    @Qualifier("messageProcessor")
+    private Consumer<Event<Integer, Review>> messageProcessor;
+
+    @Autowired
+    @Qualifier("batchMessageProcessor")
+    private Consumer<List<Event<Integer, Review>>> batchMessageProcessor;
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    void getReviewsByProductId() {
+        int productId = 1;
+        sendCreateReviewEvent(productId, 1);
+        sendCreateReviewEvent(productId, 2);
+        sendCreateReviewEvent(productId, 3);
+
+        assertEquals(3, repository.findByProductId(productId).count().block());
+
+        getAndVerifyReviews("?productId=" + productId, HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[2].productId").isEqualTo(productId)
+                .jsonPath("$[2].reviewId").isEqualTo(3);
+    }
+
+    @Test
+    void getReviewsForProducts() {
+        sendCreateReviewEvent(1, 1);
+        sendCreateReviewEvent(1, 2);
+        sendCreateReviewEvent(2, 1);
+        sendCreateReviewEvent(3, 1);
+
+        getAndVerifyReviews("?productIds=1,2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    void getReviewsPage() {
+        for (int reviewId = 5; reviewId >= 1; reviewId--) {
+            sendCreateReviewEvent(1, reviewId);
+        }
+        sendCreateReviewEvent(2, 1);
+
+        getAndVerifyReviews("/page?productId=1&size=2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").isEqualTo(1)
+                .jsonPath("$[1].reviewId").isEqualTo(2);
+        getAndVerifyReviews("/page?productId=1&after=2&size=2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").isEqualTo(3)
+                .jsonPath("$[1].reviewId").isEqualTo(4);
+        getAndVerifyReviews("/page?productId=1&after=4&size=2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].reviewId").isEqualTo(5);
+        getAndVerifyReviews("/page?productId=1&after=5", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void duplicateError() {
+        sendCreateReviewEvent(1, 1);
+        InvalidInputException thrown = assertThrows(
+                InvalidInputException.class,
+                () -> sendCreateReviewEvent(1, 1)
+        );
+        assertEquals("Duplicate key, Product Id: 1, Review Id: 1", thrown.getMessage());
+        assertEquals(1, repository.count().block());
+    }
+
+    @Test
+    void deleteReviews() {
+        sendCreateReviewEvent(1, 1);
+        assertEquals(1, repository.findByProductId(1).count().block());
+
+        sendDeleteReviewEvent(1);
+        assertEquals(0, repository.findByProductId(1).count().block());
+
+        sendDeleteReviewEvent(1);
+    }
+
+    @Test
+    void batchCreateAndDeleteReviews() {
+        batchMessageProcessor.accept(List.of(
+                createReviewEvent(1, 1),
+                createReviewEvent(1, 2),
+                createReviewEvent(2, 1),
+                createReviewEvent(3, 1),
+                deleteReviewEvent(1),
+                deleteReviewEvent(2)));
+
+        assertEquals(1, repository.count().block());
+        assertEquals(1, repository.findByProductId(3).count().block());
+    }
+
+    @Test
+    void getReviewsInvalidParameterNegativeValue() {
+        getAndVerifyReviews("?productId=-1", HttpStatus.UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/review")
+                .jsonPath("$.message").isEqualTo("Invalid productId: -1");
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyReviews(String query, HttpStatus expectedStatus) {
+        return client.get()
+                .uri("/review" + query)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody();
+    }
+
+    private void sendCreateReviewEvent(int productId, int reviewId) {
+        messageProcessor.accept(createReviewEvent(productId, reviewId));
+    }
+
+    private void sendDeleteReviewEvent(int productId) {
+        messageProcessor.accept(deleteReviewEvent(productId));
+    }
+
+    private Event<Integer, Review> createReviewEvent(int productId, int reviewId) {
+        Review review = new Review(productId, reviewId, "Author " + reviewId,
+                "Subject " + reviewId, "Content " + reviewId, "SA");
+        return new Event<>(Event.Type.CREATE, productId, review);
+    }
+
+    private Event<Integer, Review> deleteReviewEvent(int productId) {
+        return new Event<>(Event.Type.DELETE, productId, null);
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.microservices.core.review;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import com.example.api.core.review.Review;
 import com.example.api.event.Event;
@@ -11,10 +15,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
@@ -30,6 +37,13 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
     @Qualifier("messageProcessor")
     private Consumer<Event<Integer, Review>> messageProcessor;
 
+    @Autowired
+    @Qualifier("batchMessageProcessor")
+    private Consumer<List<Event<Integer, Review>>> batchMessageProcessor;
+
+    @MockBean
+    private StreamBridge streamBridge;
+
     @BeforeEach
     void setupDb() {
         repository.deleteAll();
@@ -57,6 +71,83 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
                 .jsonPath("$[2].reviewId").isEqualTo(3);
 	}
 
+    @Test
+    void getReviewsNotModified() {
+        sendCreateReviewEvent(1, 1);
+        String eTag = getReviewsETag(1);
+        assertNotNull(eTag);
+
+        client.get()
+                .uri("/review?productId=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        sendDeleteReviewEvent(1);
+        assertNotEquals(eTag, getReviewsETag(1));
+    }
+
+    @Test
+    void getReviewsAsSmile() {
+        sendCreateReviewEvent(1, 1);
+        sendCreateReviewEvent(1, 2);
+
+        MediaType smile = MediaType.valueOf("application/x-jackson-smile");
+        List<Review> reviews = client.get()
+                .uri("/review?productId=1")
+                .accept(smile)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(smile)
+                .expectBodyList(Review.class)
+                .returnResult().getResponseBody();
+        assertNotNull(reviews);
+        assertEquals(2, reviews.size());
+        assertEquals(2, reviews.get(1).getReviewId());
+    }
+
+    @Test
+    void getReviewsForProducts() {
+        sendCreateReviewEvent(1, 1);
+        sendCreateReviewEvent(1, 2);
+        sendCreateReviewEvent(2, 1);
+        sendCreateReviewEvent(3, 1);
+
+        getAndVerifyReviewsByProductId("?productIds=1,2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    void getReviewsPage() {
+        for (int reviewId = 5; reviewId >= 1; reviewId--) {
+            sendCreateReviewEvent(1, reviewId);
+        }
+        sendCreateReviewEvent(2, 1);
+
+        getAndVerifyReviewsByProductId("/page?productId=1&size=2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").isEqualTo(1)
+                .jsonPath("$[1].reviewId").isEqualTo(2);
+        getAndVerifyReviewsByProductId("/page?productId=1&after=2&size=2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").isEqualTo(3)
+                .jsonPath("$[1].reviewId").isEqualTo(4);
+        getAndVerifyReviewsByProductId("/page?productId=1&after=4&size=2", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].reviewId").isEqualTo(5);
+        getAndVerifyReviewsByProductId("/page?productId=1&after=5", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void getReviewsPageInvalidSize() {
+        getAndVerifyReviewsByProductId("/page?productId=1&size=0", HttpStatus.UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/review/page")
+                .jsonPath("$.message").isEqualTo("Invalid page size: 0, must be between 1 and 100");
+    }
+
     @Test
     void duplicateError() {
         int productId = 1;
@@ -86,6 +177,33 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
         sendDeleteReviewEvent(productId);
     }
 
+    @Test
+    void batchCreateAndDeleteReviews() {
+        batchMessageProcessor.accept(List.of(
+                createReviewEvent(1, 1),
+                createReviewEvent(1, 2),
+                createReviewEvent(2, 1),
+                createReviewEvent(3, 1),
+                deleteReviewEvent(1),
+                deleteReviewEvent(2)));
+
+        assertEquals(1, repository.count());
+        assertEquals(1, repository.findByProductId(3).size());
+    }
+
+    @Test
+    void batchDeadLettersOnlyTheFailingEvent() {
+        sendCreateReviewEvent(1, 1);
+
+        batchMessageProcessor.accept(List.of(
+                createReviewEvent(1, 2),
+                createReviewEvent(1, 1),
+                createReviewEvent(1, 3)));
+
+        assertEquals(3, repository.count());
+        verify(streamBridge, times(1)).send(eq("deadLetters-out-0"), any());
+    }
+
 	@Test
 	void getReviewsMissingParameter() {
         getAndVerifyReviewsByProductId("", HttpStatus.BAD_REQUEST)
@@ -128,16 +246,32 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
                 .expectBody();
     }
 
+    private String getReviewsETag(int productId) {
+        return client.get()
+                .uri("/review?productId=" + productId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+    }
+
     private void sendCreateReviewEvent(int productId, int reviewId) {
+        messageProcessor.accept(createReviewEvent(productId, reviewId));
+    }
+
+    private void sendDeleteReviewEvent(int productId) {
+        messageProcessor.accept(deleteReviewEvent(productId));
+    }
+
+    private Event<Integer, Review> createReviewEvent(int productId, int reviewId) {
         Review review = new Review(productId, reviewId, "Author " + reviewId,
                 "Subject " + reviewId, "Content " + reviewId, "SA");
-        Event<Integer, Review> event = new Event<>(Event.Type.CREATE, productId, review);
-        messageProcessor.accept(event);
+        return new Event<>(Event.Type.CREATE, productId, review);
     }
 
-    private void sendDeleteReviewEvent(int productId) {
-        Event<Integer, Review> event = new Event<>(Event.Type.DELETE, productId, null);
-        messageProcessor.accept(event);
+    private Event<Integer, Review> deleteReviewEvent(int productId) {
+        return new Event<>(Event.Type.DELETE, productId, null);
     }
 
 }
@@ -0,0 +1,166 @@
+package com.example.springcloud.gateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Caps the concurrent requests of a route at a limit that follows the upstream
+// latency, requests over the limit are answered with 429 at once instead of being
+// queued. The limit is adjusted per response like the gradient algorithm of Netflix
+// concurrency-limits: it shrinks as the latency rises above tolerance times its
+// long term average, grows by about its square root while latency is normal and the
+// limit is in use, and is cut by backoffRatio on errors, 5xx, 429 or 503 responses.
+@Component
+public class AdmissionControlGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControlGatewayFilterFactory.class);
+
+    // Weight of a sample in the long term latency average, about the last 100 responses
+    private static final double LONG_RTT_WEIGHT = 0.02;
+
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, AdaptiveLimit> limits = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdmissionControlGatewayFilterFactory(
+            @Value("${app.admissionControl.enabled:true}") boolean enabled,
+            @Value("${app.admissionControl.initialLimit:20}") int initialLimit,
+            @Value("${app.admissionControl.minLimit:5}") int minLimit,
+            @Value("${app.admissionControl.maxLimit:500}") int maxLimit,
+            @Value("${app.admissionControl.tolerance:1.5}") double tolerance,
+            @Value("${app.admissionControl.smoothing:0.2}") double smoothing,
+            @Value("${app.admissionControl.backoffRatio:0.9}") double backoffRatio,
+            MeterRegistry registry) {
+        super(Object.class);
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid admission limits, min: " + minLimit +
+                    ", initial: " + initialLimit + ", max: " + maxLimit);
+        }
+        LOG.info("Admission control enabled: {}, limit initial: {}, min: {}, max: {}, tolerance: {}, " +
+                        "smoothing: {}, backoffRatio: {}",
+                enabled, initialLimit, minLimit, maxLimit, tolerance, smoothing, backoffRatio);
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.registry = registry;
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return this::filter;
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        AdaptiveLimit limit = limits.computeIfAbsent(route == null ? "none" : route.getId(), AdaptiveLimit::new);
+        if (!limit.tryAcquire()) {
+            limit.rejected.increment();
+            ServerWebExchangeUtils.setResponseStatus(exchange, HttpStatus.TOO_MANY_REQUESTS);
+            return exchange.getResponse().setComplete();
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    limit.release(signal, status, System.nanoTime() - start);
+                });
+    }
+
+    int limit(String routeId) {
+        AdaptiveLimit limit = limits.get(routeId);
+        return limit == null ? initialLimit : limit.limit;
+    }
+
+    private class AdaptiveLimit {
+        private final String routeId;
+        private final AtomicInteger inflight = new AtomicInteger();
+        private final Counter rejected;
+        private volatile int limit = initialLimit;
+        private double estimatedLimit = initialLimit;
+        private double longRttNanos;
+
+        private AdaptiveLimit(String routeId) {
+            this.routeId = routeId;
+            this.rejected = registry.counter("gateway.admission.rejected", "route", routeId);
+            Gauge.builder("gateway.admission.limit", this, l -> l.limit).tag("route", routeId).register(registry);
+            Gauge.builder("gateway.admission.inflight", inflight, AtomicInteger::get)
+                    .tag("route", routeId).register(registry);
+        }
+
+        private boolean tryAcquire() {
+            int current;
+            do {
+                current = inflight.get();
+                if (current >= limit) {
+                    return false;
+                }
+            } while (!inflight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        // Cancelled requests give no latency sample
+        private void release(SignalType signal, HttpStatus status, long rttNanos) {
+            int inflightAtRelease = inflight.getAndDecrement();
+            if (signal == SignalType.CANCEL) {
+                return;
+            }
+            boolean dropped = signal == SignalType.ON_ERROR || status == null
+                    || status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS;
+            update(rttNanos, dropped, inflightAtRelease);
+        }
+
+        private synchronized void update(long rttNanos, boolean dropped, int inflightAtRelease) {
+            double newLimit;
+            if (dropped) {
+                newLimit = estimatedLimit * backoffRatio;
+            } else {
+                longRttNanos = longRttNanos == 0 ? rttNanos :
+                        longRttNanos * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+                // A limit that isn't in use says nothing about the capacity upstream
+                if (inflightAtRelease < estimatedLimit / 2) {
+                    return;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+                newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+                newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+            }
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            int previous = limit;
+            limit = (int) estimatedLimit;
+            if (limit != previous) {
+                LOG.debug("Admission limit of {}: {}", routeId, limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.springcloud.gateway;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+// Rate limits per client address. Behind a proxy this is the address of the proxy,
+// XForwardedRemoteAddressResolver would be needed to see the clients
+@Component
+public class ClientAddressKeyResolver implements KeyResolver {
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return Mono.justOrEmpty(address == null ? null : address.getHostString());
+    }
+}
@@ -1,40 +1,49 @@
 package com.example.springcloud.gateway;
 
+import com.example.util.health.HealthCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.ReactiveHealthContributor;
-import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 @Configuration
 public class HealthCheckConfiguration {
     private static final Logger LOG = LoggerFactory.getLogger(HealthCheckConfiguration.class);
     private WebClient webClient;
+    private final Duration timeToLive;
+    private final Duration timeout;
 
     @Autowired
-    public HealthCheckConfiguration(WebClient.Builder webClientBuilder) {
+    public HealthCheckConfiguration(
+            WebClient.Builder webClientBuilder,
+            @Value("${app.health.timeToLive:10s}") Duration timeToLive,
+            @Value("${app.health.timeout:2s}") Duration timeout) {
         this.webClient=webClientBuilder.build();
+        this.timeToLive = timeToLive;
+        this.timeout = timeout;
     }
 
     @Bean
     ReactiveHealthContributor healthcheckMicroservices() {
-        final Map<String, ReactiveHealthIndicator> registry =
+        final Map<String, Supplier<Mono<Health>>> checks =
                 new LinkedHashMap<>();
-        registry.put("product", () -> getHealth("http://product"));
-        registry.put("recommendation", () -> getHealth("http://recommendation"));
-        registry.put("review", () -> getHealth("http://review"));
-        registry.put("product-composite", () -> getHealth("http://product-composite"));
-        return CompositeReactiveHealthContributor.fromMap(registry);
+        checks.put("product", () -> getHealth("http://product"));
+        checks.put("recommendation", () -> getHealth("http://recommendation"));
+        checks.put("review", () -> getHealth("http://review"));
+        checks.put("product-composite", () -> getHealth("http://product-composite"));
+        return new HealthCache(checks, timeToLive, timeout).contributor();
     }
 
     private Mono<Health> getHealth(String baseUrl) {
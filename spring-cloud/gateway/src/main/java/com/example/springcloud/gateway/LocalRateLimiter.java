@@ -0,0 +1,102 @@
+package com.example.springcloud.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In memory token buckets for the RequestRateLimiter filter, one per route and
+// client key, so each gateway instance enforces the rates on its own. A bucket is
+// a single AtomicLong holding its theoretical arrival time (GCRA): a request is
+// allowed if advancing it by one token interval keeps it within burstCapacity
+// intervals of now. Buckets idle for idleTimeout are dropped, they would be full.
+@Component
+public class LocalRateLimiter implements RateLimiter<Object> {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalRateLimiter.class);
+
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private final int replenishRate;
+    private final int burstCapacity;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final MeterRegistry registry;
+    private final Cache<String, AtomicLong> buckets;
+
+    @Autowired
+    public LocalRateLimiter(
+            @Value("${app.rateLimiter.replenishRate:100}") int replenishRate,
+            @Value("${app.rateLimiter.burstCapacity:200}") int burstCapacity,
+            @Value("${app.rateLimiter.maximumClients:100000}") long maximumClients,
+            @Value("${app.rateLimiter.idleTimeout:1m}") Duration idleTimeout,
+            MeterRegistry registry) {
+        if (replenishRate < 1 || burstCapacity < 1) {
+            throw new IllegalArgumentException("Invalid rate limit, replenishRate: " + replenishRate +
+                    ", burstCapacity: " + burstCapacity + ", both must be at least 1");
+        }
+        LOG.info("Local rate limiter replenishRate: {}/s, burstCapacity: {}, maximumClients: {}, idleTimeout: {}",
+                replenishRate, burstCapacity, maximumClients, idleTimeout);
+        this.replenishRate = replenishRate;
+        this.burstCapacity = burstCapacity;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / replenishRate;
+        this.burstNanos = intervalNanos * burstCapacity;
+        this.registry = registry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        AtomicLong bucket = buckets.get(routeId + ":" + id, key -> new AtomicLong(System.nanoTime()));
+        long now = System.nanoTime();
+        while (true) {
+            long arrival = bucket.get();
+            long next = (arrival - now < 0 ? now : arrival) + intervalNanos;
+            if (next - now > burstNanos) {
+                registry.counter("gateway.ratelimiter.rejected", "route", routeId).increment();
+                return Mono.just(new Response(false, headers(0)));
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return Mono.just(new Response(true, headers((now + burstNanos - next) / intervalNanos)));
+            }
+        }
+    }
+
+    private Map<String, String> headers(long remaining) {
+        return Map.of(REMAINING_HEADER, Long.toString(remaining),
+                REPLENISH_RATE_HEADER, Integer.toString(replenishRate),
+                BURST_CAPACITY_HEADER, Integer.toString(burstCapacity));
+    }
+
+    // Rates come from the app.rateLimiter properties, there is no per route configuration
+    @Override
+    public Map<String, Object> getConfig() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Class<Object> getConfigClass() {
+        return Object.class;
+    }
+
+    @Override
+    public Object newConfig() {
+        return new Object();
+    }
+}
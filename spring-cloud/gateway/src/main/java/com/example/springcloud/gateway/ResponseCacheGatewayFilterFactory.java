@@ -0,0 +1,409 @@
+package com.example.springcloud.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Caches successful JSON responses to GET requests of a route in memory, bounded by
+// the total size of the bodies and keyed by path, query and the varyHeaders of the
+// request. An entry is fresh for the s-maxage or max-age of the upstream Cache-Control
+// header, timeToLive without one. After that it is served stale for staleWhileRevalidate
+// while one background request revalidates it with its ETag. Responses with no-store,
+// no-cache or private are not cached. Requests with no-store or an Authorization header
+// bypass the cache, requests with no-cache skip the lookup. POST, PUT, PATCH and DELETE
+// evict the entries of their path when they arrive and again when they are answered,
+// entries of other paths and other gateways expire on their own. The entries of a
+// path are kept together, so evicting them doesn't scan the cache.
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCacheGatewayFilterFactory.class);
+
+    static final String CACHE_HEADER = "X-Cache";
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.CACHE_CONTROL, HttpHeaders.ETAG, HttpHeaders.VARY);
+    private static final Set<HttpMethod> UNSAFE_METHODS =
+            EnumSet.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final boolean enabled;
+    private final long timeToLiveNanos;
+    private final long staleWhileRevalidateNanos;
+    private final List<String> varyHeaders;
+    private final WebClient webClient;
+    private final MeterRegistry registry;
+    private final Cache<String, Variants> cache;
+
+    @Autowired
+    public ResponseCacheGatewayFilterFactory(
+            @Value("${app.responseCache.enabled:true}") boolean enabled,
+            @Value("${app.responseCache.maximumSize:64MB}") DataSize maximumSize,
+            @Value("${app.responseCache.timeToLive:5s}") Duration timeToLive,
+            @Value("${app.responseCache.staleWhileRevalidate:30s}") Duration staleWhileRevalidate,
+            @Value("${app.responseCache.varyHeaders:Accept,Accept-Encoding}") List<String> varyHeaders,
+            WebClient.Builder webClientBuilder,
+            MeterRegistry registry) {
+        super(Object.class);
+        LOG.info("Response cache enabled: {}, maximumSize: {}, timeToLive: {}, staleWhileRevalidate: {}, varyHeaders: {}",
+                enabled, maximumSize, timeToLive, staleWhileRevalidate, varyHeaders);
+        this.enabled = enabled;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.staleWhileRevalidateNanos = staleWhileRevalidate.toNanos();
+        this.varyHeaders = varyHeaders;
+        this.webClient = webClientBuilder.build();
+        this.registry = registry;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String path, Variants value) -> value.weight)
+                .expireAfter(new Expiry<String, Variants>() {
+                    @Override
+                    public long expireAfterCreate(String path, Variants value, long currentTime) {
+                        return Math.max(0, value.staleUntil - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String path, Variants value,
+                                                  long currentTime, long currentDuration) {
+                        return Math.max(0, value.staleUntil - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String path, Variants value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "gatewayResponses");
+        Gauge.builder("gateway.response.cache.bytes", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+                .register(registry);
+    }
+
+    // Runs before NettyWriteResponseFilter, so the body written by it passes the decorator
+    @Override
+    public GatewayFilter apply(Object config) {
+        return new OrderedGatewayFilter(this::filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            if (!UNSAFE_METHODS.contains(request.getMethod())) {
+                return chain.filter(exchange);
+            }
+            // A GET racing with the write may cache the old body, so evict again once it is answered
+            String path = request.getURI().getRawPath();
+            cache.invalidate(path);
+            return chain.filter(exchange).doFinally(signal -> cache.invalidate(path));
+        }
+        Map<String, String> directives = directives(request.getHeaders().getCacheControl());
+        if (directives.containsKey("no-store") || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+            count("bypass");
+            exchange.getResponse().getHeaders().set(CACHE_HEADER, "BYPASS");
+            return chain.filter(exchange);
+        }
+
+        CacheKey key = key(request);
+        if (!directives.containsKey("no-cache")) {
+            CachedResponse cached = lookup(key);
+            if (cached != null) {
+                long now = System.nanoTime();
+                if (now - cached.freshUntil < 0) {
+                    return writeCached(exchange, cached, "hit", now);
+                }
+                revalidate(exchange, key, cached);
+                return writeCached(exchange, cached, "stale", now);
+            }
+        }
+        count("miss");
+        exchange.getResponse().getHeaders().set(CACHE_HEADER, "MISS");
+        return chain.filter(exchange.mutate().response(new CachingResponse(exchange.getResponse(), key)).build());
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached, String result, long now) {
+        count(result);
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers);
+        headers.set(HttpHeaders.AGE, Long.toString(TimeUnit.NANOSECONDS.toSeconds(now - cached.storedAt)));
+        headers.set(CACHE_HEADER, result.toUpperCase(Locale.ROOT));
+        String eTag = cached.headers.getETag();
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body)));
+    }
+
+    // Revalidation uses the load balanced WebClient, so it is only done for lb routes
+    // and assumes the route doesn't rewrite the path. Until it completes, and if it
+    // fails with a server error, the stale entry is served. Other answers remove it.
+    private void revalidate(ServerWebExchange exchange, CacheKey key, CachedResponse stale) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !"lb".equals(route.getUri().getScheme())
+                || !stale.revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        URI uri = UriComponentsBuilder.fromUri(request.getURI())
+                .scheme("http").host(route.getUri().getHost()).port(-1)
+                .build(true).toUri();
+        webClient.get().uri(uri)
+                .headers(headers -> {
+                    varyHeaders.forEach(name -> {
+                        List<String> values = request.getHeaders().get(name);
+                        if (values != null) {
+                            headers.put(name, values);
+                        }
+                    });
+                    String eTag = stale.headers.getETag();
+                    if (eTag != null) {
+                        headers.setIfNoneMatch(eTag);
+                    }
+                })
+                .<CachedResponse>exchangeToMono(response -> {
+                    if (response.statusCode() == HttpStatus.NOT_MODIFIED) {
+                        count("revalidations", "notModified");
+                        return response.releaseBody().then(Mono.justOrEmpty(entry(stale.headers, stale.body)));
+                    }
+                    if (response.statusCode() == HttpStatus.OK) {
+                        count("revalidations", "modified");
+                        HttpHeaders headers = response.headers().asHttpHeaders();
+                        return response.bodyToMono(byte[].class)
+                                .defaultIfEmpty(new byte[0])
+                                .flatMap(body -> Mono.justOrEmpty(entry(headers, body)));
+                    }
+                    if (response.statusCode().is5xxServerError()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    count("revalidations", "removed");
+                    return response.releaseBody().then(Mono.empty());
+                })
+                .switchIfEmpty(Mono.fromRunnable(() ->
+                        update(key.path, responses -> responses.remove(key.variant, stale))))
+                .doFinally(signal -> stale.revalidating.set(false))
+                .subscribe(
+                        fresh -> update(key.path, responses -> responses.replace(key.variant, stale, fresh)),
+                        error -> {
+                            count("revalidations", "failed");
+                            LOG.debug("Revalidation of {} failed: {}", uri, error.toString());
+                        });
+    }
+
+    private CachedResponse lookup(CacheKey key) {
+        Variants variants = cache.getIfPresent(key.path);
+        CachedResponse cached = variants != null ? variants.responses.get(key.variant) : null;
+        return cached != null && System.nanoTime() - cached.staleUntil < 0 ? cached : null;
+    }
+
+    // The variants of a path are replaced as a whole, dropping the ones past staleUntil
+    private void update(String path, Consumer<Map<String, CachedResponse>> change) {
+        cache.asMap().compute(path, (p, current) -> {
+            long now = System.nanoTime();
+            Map<String, CachedResponse> responses = new HashMap<>();
+            if (current != null) {
+                current.responses.forEach((variant, response) -> {
+                    if (now - response.staleUntil < 0) {
+                        responses.put(variant, response);
+                    }
+                });
+            }
+            change.accept(responses);
+            return responses.isEmpty() ? null : new Variants(responses);
+        });
+    }
+
+    private CachedResponse entry(HttpHeaders headers, byte[] body) {
+        MediaType contentType = headers.getContentType();
+        if (contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return null;
+        }
+        Map<String, String> directives = directives(headers.getCacheControl());
+        if (directives.containsKey("no-store") || directives.containsKey("no-cache")
+                || directives.containsKey("private")) {
+            return null;
+        }
+        long freshNanos = seconds(directives, "s-maxage", seconds(directives, "max-age", timeToLiveNanos));
+        if (freshNanos <= 0) {
+            return null;
+        }
+        long staleNanos = seconds(directives, "stale-while-revalidate", staleWhileRevalidateNanos);
+        HttpHeaders stored = new HttpHeaders();
+        STORED_HEADERS.forEach(name -> {
+            List<String> values = headers.get(name);
+            if (values != null) {
+                stored.put(name, new ArrayList<>(values));
+            }
+        });
+        return new CachedResponse(stored, body, freshNanos, staleNanos);
+    }
+
+    private CacheKey key(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        String variant = varyHeaders.stream()
+                .map(name -> String.join(",", headers.getOrEmpty(name)))
+                .collect(Collectors.joining("\n", request.getURI().getRawQuery() + "\n", ""));
+        return new CacheKey(request.getURI().getRawPath(), variant);
+    }
+
+    private void count(String result) {
+        registry.counter("gateway.response.cache.requests", "result", result).increment();
+    }
+
+    private void count(String name, String result) {
+        registry.counter("gateway.response.cache." + name, "result", result).increment();
+    }
+
+    private static Map<String, String> directives(String cacheControl) {
+        Map<String, String> directives = new HashMap<>();
+        if (cacheControl == null) {
+            return directives;
+        }
+        for (String part : cacheControl.split(",")) {
+            String directive = part.trim().toLowerCase(Locale.ROOT);
+            if (directive.isEmpty()) {
+                continue;
+            }
+            int separator = directive.indexOf('=');
+            if (separator < 0) {
+                directives.put(directive, "");
+            } else {
+                directives.put(directive.substring(0, separator).trim(),
+                        directive.substring(separator + 1).trim().replace("\"", ""));
+            }
+        }
+        return directives;
+    }
+
+    private static long seconds(Map<String, String> directives, String name, long defaultNanos) {
+        String value = directives.get(name);
+        if (value == null) {
+            return defaultNanos;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(value));
+        } catch (NumberFormatException ex) {
+            return defaultNanos;
+        }
+    }
+
+    private class CachingResponse extends ServerHttpResponseDecorator {
+        private final CacheKey key;
+
+        private CachingResponse(ServerHttpResponse delegate, CacheKey key) {
+            super(delegate);
+            this.key = key;
+        }
+
+        // Streaming responses are written with writeAndFlushWith and never cached
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (getStatusCode() != HttpStatus.OK) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body)
+                    .map(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        CachedResponse entry = entry(getHeaders(), bytes);
+                        if (entry != null) {
+                            update(key.path, responses -> responses.put(key.variant, entry));
+                        }
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+    }
+
+    private static final class CacheKey {
+        private final String path;
+        private final String variant;
+
+        private CacheKey(String path, String variant) {
+            this.path = path;
+            this.variant = variant;
+        }
+    }
+
+    // The responses of one path by query and vary headers, expiring with the last of them
+    private static final class Variants {
+        private final Map<String, CachedResponse> responses;
+        private final int weight;
+        private final long staleUntil;
+
+        private Variants(Map<String, CachedResponse> responses) {
+            this.responses = responses;
+            this.weight = responses.values().stream().mapToInt(response -> response.body.length).sum();
+            this.staleUntil = responses.values().stream()
+                    .mapToLong(response -> response.staleUntil).max().getAsLong();
+        }
+    }
+
+    private static final class CachedResponse {
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final long storedAt = System.nanoTime();
+        private final long freshUntil;
+        private final long staleUntil;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        private CachedResponse(HttpHeaders headers, byte[] body, long freshNanos, long staleNanos) {
+            this.headers = headers;
+            this.body = body;
+            this.freshUntil = storedAt + freshNanos;
+            this.staleUntil = freshUntil + staleNanos;
+        }
+    }
+}
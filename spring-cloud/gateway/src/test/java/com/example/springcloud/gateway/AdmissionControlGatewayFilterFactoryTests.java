@@ -0,0 +1,86 @@
+package com.example.springcloud.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlGatewayFilterFactoryTests {
+    private static final String ROUTE_ID = "product-composite";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdmissionControlGatewayFilterFactory factory =
+            new AdmissionControlGatewayFilterFactory(true, 2, 1, 10, 1.5, 1.0, 0.5, registry);
+    private final GatewayFilter filter = factory.apply(new Object());
+
+    @Test
+    void rejectsRequestsOverTheLimitAtOnce() {
+        Disposable first = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+        Disposable second = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+
+        MockServerWebExchange rejected = exchange();
+        filter.filter(rejected, exchange -> Mono.error(new IllegalStateException("Not admitted"))).block();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals(1.0, registry.get("gateway.admission.rejected").tag("route", ROUTE_ID).counter().count());
+
+        // Cancelled requests leave the limit as it is and free their slot
+        first.dispose();
+        second.dispose();
+        MockServerWebExchange admitted = exchange();
+        filter.filter(admitted, exchange -> respond(exchange, HttpStatus.OK)).block();
+        assertEquals(HttpStatus.OK, admitted.getResponse().getStatusCode());
+    }
+
+    @Test
+    void backsOffOnServerErrors() {
+        filter.filter(exchange(), exchange -> respond(exchange, HttpStatus.OK)).block();
+        int limit = factory.limit(ROUTE_ID);
+
+        filter.filter(exchange(), exchange -> respond(exchange, HttpStatus.SERVICE_UNAVAILABLE)).block();
+
+        assertTrue(factory.limit(ROUTE_ID) < limit);
+        assertEquals(1, factory.limit(ROUTE_ID));
+    }
+
+    @Test
+    void passesRequestsThroughWhenDisabled() {
+        GatewayFilter disabled = new AdmissionControlGatewayFilterFactory(false, 1, 1, 1, 1.5, 0.2, 0.9, registry)
+                .apply(new Object());
+        MockServerWebExchange exchange = exchange();
+        Disposable pending = disabled.filter(exchange(), e -> Mono.never()).subscribe();
+
+        disabled.filter(exchange, e -> respond(e, HttpStatus.OK)).block();
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertNull(registry.find("gateway.admission.rejected").counter());
+        pending.dispose();
+    }
+
+    private static Mono<Void> respond(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        return exchange.getResponse().setComplete();
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/product-composite/1"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(ROUTE_ID)
+                .uri(URI.create("lb://product-composite"))
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+}
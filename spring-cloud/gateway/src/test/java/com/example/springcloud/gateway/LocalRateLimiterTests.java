@@ -0,0 +1,52 @@
+package com.example.springcloud.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRateLimiterTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void allowsTheBurstCapacityAndThenRejects() {
+        LocalRateLimiter limiter = new LocalRateLimiter(1, 3, 100, Duration.ofMinutes(1), registry);
+
+        assertEquals("2", isAllowed(limiter, "client").getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+        assertEquals("1", isAllowed(limiter, "client").getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+        assertEquals("0", isAllowed(limiter, "client").getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+
+        RateLimiter.Response rejected = isAllowed(limiter, "client");
+        assertFalse(rejected.isAllowed());
+        assertEquals("0", rejected.getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+        assertEquals(1.0, registry.get("gateway.ratelimiter.rejected").tag("route", "route").counter().count());
+    }
+
+    @Test
+    void keepsOneBucketPerClient() {
+        LocalRateLimiter limiter = new LocalRateLimiter(1, 1, 100, Duration.ofMinutes(1), registry);
+
+        assertTrue(isAllowed(limiter, "client-1").isAllowed());
+        assertFalse(isAllowed(limiter, "client-1").isAllowed());
+        assertTrue(isAllowed(limiter, "client-2").isAllowed());
+    }
+
+    @Test
+    void replenishesTokensOverTime() throws InterruptedException {
+        LocalRateLimiter limiter = new LocalRateLimiter(100, 1, 100, Duration.ofMinutes(1), registry);
+
+        assertTrue(isAllowed(limiter, "client").isAllowed());
+        assertFalse(isAllowed(limiter, "client").isAllowed());
+        Thread.sleep(50);
+        assertTrue(isAllowed(limiter, "client").isAllowed());
+    }
+
+    private static RateLimiter.Response isAllowed(LocalRateLimiter limiter, String client) {
+        return limiter.isAllowed("route", client).block();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.springcloud.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseCacheGatewayFilterFactoryTests {
+    private static final String PATH = "/product-composite/1";
+    private static final String BODY = "{\"productId\":1}";
+    private static final String ETAG = "W/\"1\"";
+
+    private SimpleMeterRegistry registry;
+    private GatewayFilter filter;
+    private AtomicInteger upstreamCalls;
+    private String upstreamCacheControl;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new ResponseCacheGatewayFilterFactory(true, DataSize.ofMegabytes(1),
+                Duration.ofMinutes(1), Duration.ofMinutes(1), List.of("Accept"),
+                WebClient.builder(), registry).apply(new Object());
+        upstreamCalls = new AtomicInteger();
+        upstreamCacheControl = null;
+    }
+
+    @Test
+    void servesRepeatedGetsFromTheCache() {
+        MockServerWebExchange first = get(MockServerHttpRequest.get(PATH));
+        assertEquals(BODY, first.getResponse().getBodyAsString().block());
+        assertEquals("MISS", cacheHeader(first));
+
+        MockServerWebExchange second = get(MockServerHttpRequest.get(PATH));
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+        assertEquals(ETAG, second.getResponse().getHeaders().getETag());
+        assertEquals("HIT", cacheHeader(second));
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1.0, registry.get("gateway.response.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void answersIfNoneMatchFromTheCache() {
+        get(MockServerHttpRequest.get(PATH));
+
+        MockServerWebExchange revalidation = get(MockServerHttpRequest.get(PATH).ifNoneMatch(ETAG));
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidation.getResponse().getStatusCode());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void keysByTheVaryHeaders() {
+        get(MockServerHttpRequest.get(PATH).accept(MediaType.APPLICATION_JSON));
+        get(MockServerHttpRequest.get(PATH).accept(MediaType.ALL));
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void doesNotCacheNoStoreResponses() {
+        upstreamCacheControl = "no-store";
+        get(MockServerHttpRequest.get(PATH));
+        get(MockServerHttpRequest.get(PATH));
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void noCacheRequestsSkipTheLookup() {
+        get(MockServerHttpRequest.get(PATH));
+        MockServerWebExchange exchange = get(MockServerHttpRequest.get(PATH).header("Cache-Control", "no-cache"));
+
+        assertEquals("MISS", cacheHeader(exchange));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void otherMethodsEvictThePath() {
+        get(MockServerHttpRequest.get(PATH));
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.delete(PATH)),
+                exchange -> exchange.getResponse().setComplete()).block();
+        get(MockServerHttpRequest.get(PATH));
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void headAndOptionsDoNotEvict() {
+        get(MockServerHttpRequest.get(PATH));
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.head(PATH)),
+                exchange -> exchange.getResponse().setComplete()).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.options(PATH)),
+                exchange -> exchange.getResponse().setComplete()).block();
+
+        assertEquals("HIT", cacheHeader(get(MockServerHttpRequest.get(PATH))));
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void evictsAgainWhenTheWriteIsAnswered() {
+        get(MockServerHttpRequest.get("/product-composite/2"));
+        // A GET answered while the delete is in progress caches the old body
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.delete(PATH)), exchange -> {
+            get(MockServerHttpRequest.get(PATH));
+            return exchange.getResponse().setComplete();
+        }).block();
+
+        assertEquals("MISS", cacheHeader(get(MockServerHttpRequest.get(PATH))));
+        assertEquals("HIT", cacheHeader(get(MockServerHttpRequest.get("/product-composite/2"))));
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    private MockServerWebExchange get(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, this::upstream).block();
+        return exchange;
+    }
+
+    private Mono<Void> upstream(ServerWebExchange exchange) {
+        upstreamCalls.incrementAndGet();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setETag(ETAG);
+        if (upstreamCacheControl != null) {
+            response.getHeaders().setCacheControl(upstreamCacheControl);
+        }
+        return response.writeWith(Mono.just(response.bufferFactory()
+                .wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static String cacheHeader(ServerWebExchange exchange) {
+        return exchange.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER);
+    }
+}
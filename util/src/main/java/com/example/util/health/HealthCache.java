@@ -0,0 +1,92 @@
+package com.example.util.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthContributor;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Health of downstream targets served from memory. A result older than timeToLive
+// is still returned while one background check per target refreshes it, so a probe
+// only waits for a target that has never been checked, and never longer than the
+// timeout. A check that fails or times out reports the target as down.
+public class HealthCache {
+    private static final Logger LOG = LoggerFactory.getLogger(HealthCache.class);
+
+    private final long timeToLiveNanos;
+    private final Duration timeout;
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+
+    public HealthCache(Map<String, Supplier<Mono<Health>>> checks, Duration timeToLive, Duration timeout) {
+        LOG.info("Health cache for {}, timeToLive: {}, timeout: {}", checks.keySet(), timeToLive, timeout);
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.timeout = timeout;
+        checks.forEach((name, check) -> targets.put(name, new Target(name, check)));
+    }
+
+    public Mono<Health> getHealth(String name) {
+        Target target = targets.get(name);
+        if (target == null) {
+            return Mono.error(new IllegalArgumentException("Unknown health target: " + name));
+        }
+        return target.get();
+    }
+
+    public ReactiveHealthContributor contributor() {
+        Map<String, ReactiveHealthIndicator> indicators = new LinkedHashMap<>();
+        targets.forEach((name, target) -> indicators.put(name, target::get));
+        return CompositeReactiveHealthContributor.fromMap(indicators);
+    }
+
+    private class Target {
+        private final String name;
+        private final Supplier<Mono<Health>> check;
+        private volatile Health health;
+        private volatile long checkedAt;
+        private Mono<Health> refreshing;
+
+        private Target(String name, Supplier<Mono<Health>> check) {
+            this.name = name;
+            this.check = check;
+        }
+
+        private Mono<Health> get() {
+            Health current = health;
+            if (current != null && System.nanoTime() - checkedAt < timeToLiveNanos) {
+                return Mono.just(current);
+            }
+            Mono<Health> refresh = refresh();
+            return current != null ? Mono.just(current) : refresh;
+        }
+
+        private synchronized Mono<Health> refresh() {
+            if (refreshing != null) {
+                return refreshing;
+            }
+            Mono<Health> started = Mono.defer(check)
+                    .timeout(timeout)
+                    .onErrorResume(ex -> Mono.just(new Health.Builder().down(ex).build()))
+                    .doOnNext(result -> {
+                        health = result;
+                        checkedAt = System.nanoTime();
+                        LOG.debug("Health of {}: {}", name, result.getStatus());
+                    })
+                    .doFinally(signal -> refreshed())
+                    .cache();
+            refreshing = started;
+            started.subscribe();
+            return started;
+        }
+
+        private synchronized void refreshed() {
+            refreshing = null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.util.http;
+
+import com.example.api.exceptions.NotModifiedException;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Weak ETags for GET endpoints. The service implementations only see the API
+// interfaces, so the filter keeps the exchange of a GET request in the subscriber
+// context. A response whose ETag matches the If-None-Match header ends with a
+// NotModifiedException, answered with 304 and no body, so it is never serialized.
+// Calls that don't come through a GET request, like message processors, are passed on.
+@Component
+public class ETagUtil implements WebFilter {
+    private static final String EXCHANGE_KEY = ETagUtil.class.getName() + ".exchange";
+
+    // 64 bit FNV-1a, applied to whole values instead of bytes
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).contextWrite(Context.of(EXCHANGE_KEY, exchange));
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(Function<T, String> eTag) {
+        return mono -> Mono.deferContextual(context -> {
+            ServerWebExchange exchange = exchange(context);
+            if (exchange == null) {
+                return mono;
+            }
+            return mono.flatMap(value -> {
+                String tag = eTag.apply(value);
+                return exchange.checkNotModified(tag) ?
+                        Mono.error(new NotModifiedException(tag)) : Mono.just(value);
+            });
+        });
+    }
+
+    // JSON arrays are written once the whole Flux is collected anyway, so
+    // collecting it here to compute the ETag doesn't delay the response
+    public <T> Function<Flux<T>, Flux<T>> flux(Function<List<T>, String> eTag) {
+        return flux -> Flux.deferContextual(context -> {
+            ServerWebExchange exchange = exchange(context);
+            if (exchange == null) {
+                return flux;
+            }
+            return flux.collectList().flatMapMany(values -> {
+                String tag = eTag.apply(values);
+                return exchange.checkNotModified(tag) ?
+                        Flux.error(new NotModifiedException(tag)) : Flux.fromIterable(values);
+            });
+        });
+    }
+
+    public static String weakETag(long... values) {
+        long hash = FNV_OFFSET_BASIS;
+        for (long value : values) {
+            hash = (hash ^ value) * FNV_PRIME;
+        }
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    private static ServerWebExchange exchange(ContextView context) {
+        return context.getOrDefault(EXCHANGE_KEY, null);
+    }
+}
@@ -3,9 +3,11 @@ package com.example.util.http;
 import com.example.api.exceptions.BadRequestException;
 import com.example.api.exceptions.InvalidInputException;
 import com.example.api.exceptions.NotFoundException;
+import com.example.api.exceptions.NotModifiedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -41,6 +43,11 @@ public class GlobalControllerExceptionHandler {
         return createHttpErrorInfo(HttpStatus.BAD_REQUEST, request, ex);
     }
 
+    @ExceptionHandler(NotModifiedException.class)
+    public ResponseEntity<Void> handleNotModifiedException(NotModifiedException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ex.getETag()).build();
+    }
+
     private HttpErrorInfo createHttpErrorInfo(
             HttpStatus httpStatus, ServerHttpRequest request, Exception ex
     ) {
@@ -0,0 +1,35 @@
+package com.example.util.http;
+
+import com.example.api.exceptions.InvalidInputException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PagingUtil {
+    private static final Logger LOG = LoggerFactory.getLogger(PagingUtil.class);
+    private final int defaultSize;
+    private final int maxSize;
+
+    @Autowired
+    public PagingUtil(
+            @Value("${app.page.defaultSize:20}") int defaultSize,
+            @Value("${app.page.maxSize:100}") int maxSize) {
+        LOG.debug("Page size default: {}, max: {}", defaultSize, maxSize);
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    public int getPageSize(Integer size) {
+        if (size == null) {
+            return defaultSize;
+        }
+        if (size < 1 || size > maxSize) {
+            throw new InvalidInputException("Invalid page size: " + size +
+                    ", must be between 1 and " + maxSize);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.util.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Power of two choices: picks two instances at random and sends the request to
+// the one with the lower cost, the EWMA of its response times multiplied by its
+// outstanding requests plus one. Instances without samples only cost their
+// outstanding requests, so new instances are tried at once. The WebClient and gateway load balancer filters
+// report request start and completion through the LoadBalancerLifecycle callbacks.
+// They don't report cancelled requests, e.g. lost hedges, timeouts and client
+// disconnects, so requests without completion stop counting as outstanding after
+// outstandingTimeout. Failed requests are sampled as taking at least failurePenalty,
+// an instance that fails fast would otherwise look like the fastest one.
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final double decayNanos;
+    private final long outstandingTimeoutNanos;
+    private final long failurePenaltyNanos;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    public LatencyAwareLoadBalancer(
+            ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+            String serviceId,
+            Duration decay,
+            Duration outstandingTimeout,
+            Duration failurePenalty,
+            MeterRegistry registry) {
+        LOG.info("Latency aware load balancer for {}, decay: {}, outstandingTimeout: {}, failurePenalty: {}",
+                serviceId, decay, outstandingTimeout, failurePenalty);
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.decayNanos = decay.toNanos();
+        this.outstandingTimeoutNanos = outstandingTimeout.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::select);
+    }
+
+    Response<ServiceInstance> select(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            LOG.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        ServiceInstance chosen;
+        String decision;
+        if (instances.size() == 1) {
+            chosen = instances.get(0);
+            decision = "single";
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(instances.size());
+            int second = random.nextInt(instances.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            double firstCost = stats(instances.get(first)).cost();
+            double secondCost = stats(instances.get(second)).cost();
+            chosen = instances.get(firstCost <= secondCost ? first : second);
+            decision = firstCost == secondCost ? "tie" : "cost";
+        }
+        if (registry != null) {
+            registry.counter("loadbalancer.selections", "service", serviceId,
+                    "instance", key(chosen), "decision", decision).increment();
+        }
+        return new DefaultResponse(chosen);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext) {
+            ((TimedRequestContext) request.getContext()).setRequestStartTime(System.nanoTime());
+        }
+        if (lbResponse.hasServer()) {
+            stats(lbResponse.getServer()).start(request);
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()
+                || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+        long latencyNanos = -1;
+        Request<Object> request = completionContext.getLoadBalancerRequest();
+        if (request != null && request.getContext() instanceof TimedRequestContext) {
+            long start = ((TimedRequestContext) request.getContext()).getRequestStartTime();
+            if (start != 0) {
+                latencyNanos = System.nanoTime() - start;
+            }
+        }
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            latencyNanos = Math.max(latencyNanos, failurePenaltyNanos);
+        }
+        stats(lbResponse.getServer()).complete(request, latencyNanos);
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), k -> new InstanceStats());
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    // The EWMA is decayed by the time since the previous sample, when it is read
+    // as well as when a sample arrives, so an instance that turned slow or recovered
+    // is noticed within about one decay period, also when it gets no requests.
+    // Outstanding requests are kept by identity, DefaultRequest equals by content.
+    private class InstanceStats {
+        private final Map<Object, Long> outstanding = new IdentityHashMap<>();
+        private double ewmaNanos;
+        private long lastSample = System.nanoTime();
+
+        private synchronized double cost() {
+            long now = System.nanoTime();
+            expireOutstanding(now);
+            return (decayedEwma(now) + 1) * (outstanding.size() + 1);
+        }
+
+        private synchronized void start(Object request) {
+            long now = System.nanoTime();
+            expireOutstanding(now);
+            outstanding.put(request, now);
+        }
+
+        private synchronized void complete(Object request, long latencyNanos) {
+            outstanding.remove(request);
+            if (latencyNanos < 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            double weight = Math.exp(-(now - lastSample) / decayNanos);
+            lastSample = now;
+            ewmaNanos = ewmaNanos == 0 ? latencyNanos : ewmaNanos * weight + latencyNanos * (1 - weight);
+        }
+
+        private double decayedEwma(long now) {
+            return ewmaNanos * Math.exp(-(now - lastSample) / decayNanos);
+        }
+
+        private void expireOutstanding(long now) {
+            outstanding.values().removeIf(start -> now - start > outstandingTimeoutNanos);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.util.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Registered with @LoadBalancerClients(defaultConfiguration = ...) and created in
+// the load balancer context of each service id. It is not a @Configuration so the
+// component scans of the services don't add it to their own contexts.
+// app.loadbalancer.<serviceId>.* overrides app.loadbalancer.* for one service.
+public class LatencyAwareLoadBalancerConfiguration {
+    private static final String PREFIX = "app.loadbalancer";
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> latencyAwareLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            ObjectProvider<MeterRegistry> registry) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> supplierProvider =
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        Binder binder = Binder.get(environment);
+
+        String strategy = property(binder, serviceId, "strategy", String.class, "latency");
+        if ("round-robin".equals(strategy)) {
+            return new RoundRobinLoadBalancer(supplierProvider, serviceId);
+        }
+        Duration decay = property(binder, serviceId, "decay", Duration.class, Duration.ofSeconds(10));
+        Duration outstandingTimeout = property(binder, serviceId, "outstandingTimeout", Duration.class,
+                Duration.ofSeconds(5));
+        Duration failurePenalty = property(binder, serviceId, "failurePenalty", Duration.class, Duration.ofSeconds(1));
+        return new LatencyAwareLoadBalancer(supplierProvider, serviceId, decay, outstandingTimeout, failurePenalty,
+                registry.getIfAvailable());
+    }
+
+    private static <T> T property(Binder binder, String serviceId, String name, Class<T> type, T defaultValue) {
+        return binder.bind(PREFIX + "." + serviceId + "." + name, type)
+                .orElseGet(() -> binder.bind(PREFIX + "." + name, type).orElse(defaultValue));
+    }
+}
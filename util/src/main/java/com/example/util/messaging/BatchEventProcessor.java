@@ -0,0 +1,79 @@
+package com.example.util.messaging;
+
+import com.example.api.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Splits a batch of events into runs of consecutive events of the same type, so a
+// CREATE followed by a DELETE for the same key is still applied in that order, and
+// hands each run to a bulk operation. If a bulk operation fails the run is processed
+// one event at a time and only the events that still fail are dead lettered.
+public class BatchEventProcessor<K, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchEventProcessor.class);
+
+    private final Function<List<T>, Mono<?>> bulkCreate;
+    private final Function<List<K>, Mono<?>> bulkDelete;
+    private final Consumer<Event<K, T>> eventProcessor;
+    private final BiConsumer<Event<K, T>, RuntimeException> deadLetterHandler;
+
+    public BatchEventProcessor(
+            Function<List<T>, Mono<?>> bulkCreate,
+            Function<List<K>, Mono<?>> bulkDelete,
+            Consumer<Event<K, T>> eventProcessor,
+            BiConsumer<Event<K, T>, RuntimeException> deadLetterHandler) {
+        this.bulkCreate = bulkCreate;
+        this.bulkDelete = bulkDelete;
+        this.eventProcessor = eventProcessor;
+        this.deadLetterHandler = deadLetterHandler;
+    }
+
+    public void process(List<Event<K, T>> events) {
+        LOG.info("Process batch of {} events...", events.size());
+        int start = 0;
+        while (start < events.size()) {
+            Event.Type type = events.get(start).getEventType();
+            int end = start + 1;
+            while (end < events.size() && events.get(end).getEventType() == type) {
+                end++;
+            }
+            processRun(type, events.subList(start, end));
+            start = end;
+        }
+        LOG.info("Batch processing done!");
+    }
+
+    private void processRun(Event.Type type, List<Event<K, T>> run) {
+        if (run.size() > 1 && type != null) {
+            try {
+                if (type == Event.Type.CREATE) {
+                    LOG.info("Bulk create of {} events", run.size());
+                    bulkCreate.apply(run.stream().map(Event::getData).collect(Collectors.toList())).block();
+                } else {
+                    LOG.info("Bulk delete of {} events", run.size());
+                    bulkDelete.apply(run.stream().map(Event::getKey).collect(Collectors.toList())).block();
+                }
+                return;
+            } catch (RuntimeException ex) {
+                LOG.warn("Bulk {} of {} events failed, processes them one by one: {}",
+                        type, run.size(), ex.toString());
+            }
+        }
+
+        for (Event<K, T> event : run) {
+            try {
+                eventProcessor.accept(event);
+            } catch (RuntimeException ex) {
+                LOG.warn("Failed to process {} event with key {}, sends it to dead letters: {}",
+                        event.getEventType(), event.getKey(), ex.toString());
+                deadLetterHandler.accept(event, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.util.messaging;
+
+import com.example.api.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Processes events without blocking the binder thread. Events are spread over
+// a fixed number of lanes by key, lanes run concurrently while events within a
+// lane are processed one at a time, so events for the same key keep their order.
+// A failing event is dead lettered and doesn't terminate the stream.
+public class ReactiveEventProcessor<K, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEventProcessor.class);
+
+    private final int concurrency;
+    private final Function<Event<K, T>, Mono<?>> eventHandler;
+    private final BiConsumer<Event<K, T>, RuntimeException> deadLetterHandler;
+
+    public ReactiveEventProcessor(
+            int concurrency,
+            Function<Event<K, T>, Mono<?>> eventHandler,
+            BiConsumer<Event<K, T>, RuntimeException> deadLetterHandler) {
+        this.concurrency = concurrency;
+        this.eventHandler = eventHandler;
+        this.deadLetterHandler = deadLetterHandler;
+    }
+
+    public Mono<Void> process(Flux<Event<K, T>> events) {
+        return events
+                .groupBy(event -> Math.floorMod(Objects.hashCode(event.getKey()), concurrency))
+                .flatMap(lane -> lane.concatMap(this::processEvent), concurrency)
+                .then();
+    }
+
+    private Mono<Void> processEvent(Event<K, T> event) {
+        LOG.debug("Process {} event with key {}", event.getEventType(), event.getKey());
+        return Mono.defer(() -> eventHandler.apply(event))
+                .then()
+                .onErrorResume(RuntimeException.class, ex -> {
+                    LOG.warn("Failed to process {} event with key {}, sends it to dead letters: {}",
+                            event.getEventType(), event.getKey(), ex.toString());
+                    try {
+                        deadLetterHandler.accept(event, ex);
+                    } catch (RuntimeException deadLetterEx) {
+                        // Keep the stream alive, an error here would end the subscription
+                        LOG.error("Failed to dead letter event with key {}", event.getKey(), deadLetterEx);
+                    }
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.util.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+// Sampled replacement for the Reactor log() operator. The sampling decision is taken
+// when a pipeline is assembled, pipelines that are not sampled get the identity
+// function and no extra operator. A sampled pipeline logs at DEBUG once it terminates,
+// with the stage, the final signal, the number of elements and the time since subscription.
+@Component
+public class SignalTracer {
+    private static final Logger LOG = LoggerFactory.getLogger(SignalTracer.class);
+
+    private static final Function<?, ?> IDENTITY = Function.identity();
+
+    private final double sampleRate;
+
+    @Autowired
+    public SignalTracer(@Value("${app.tracing.sampleRate:0.0}") double sampleRate) {
+        if (sampleRate < 0.0 || sampleRate > 1.0) {
+            throw new IllegalArgumentException("Invalid tracing sample rate: " + sampleRate +
+                    ", must be between 0.0 and 1.0");
+        }
+        LOG.debug("Tracing sample rate: {}", sampleRate);
+        this.sampleRate = sampleRate;
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String stage) {
+        if (!sample()) {
+            return identity();
+        }
+        return flux -> {
+            Trace trace = new Trace(stage);
+            return flux.doOnSubscribe(s -> trace.start())
+                    .doOnNext(value -> trace.elements++)
+                    .doOnError(trace::error)
+                    .doFinally(trace::finish);
+        };
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String stage) {
+        if (!sample()) {
+            return identity();
+        }
+        return mono -> {
+            Trace trace = new Trace(stage);
+            return mono.doOnSubscribe(s -> trace.start())
+                    .doOnNext(value -> trace.elements++)
+                    .doOnError(trace::error)
+                    .doFinally(trace::finish);
+        };
+    }
+
+    private boolean sample() {
+        return sampleRate > 0.0 && LOG.isDebugEnabled()
+                && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <P> Function<P, P> identity() {
+        return (Function<P, P>) IDENTITY;
+    }
+
+    // Signals of a pipeline are serialized, so the fields need no synchronization
+    private static class Trace {
+        private final String stage;
+        private long startNanos;
+        private long elements;
+        private Throwable error;
+
+        private Trace(String stage) {
+            this.stage = stage;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+        }
+
+        private void error(Throwable error) {
+            this.error = error;
+        }
+
+        private void finish(SignalType signal) {
+            long micros = (System.nanoTime() - startNanos) / 1_000;
+            if (error == null) {
+                LOG.debug("{}: {} after {} us, {} elements", stage, signal, micros, elements);
+            } else {
+                LOG.debug("{}: {} after {} us, {} elements, error: {}",
+                        stage, signal, micros, elements, error.toString());
+            }
+        }
+    }
+}